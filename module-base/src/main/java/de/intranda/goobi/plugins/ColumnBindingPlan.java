@@ -0,0 +1,397 @@
+package de.intranda.goobi.plugins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+import lombok.Getter;
+import ugh.dl.MetadataGroupType;
+import ugh.dl.MetadataType;
+
+/**
+ * The configured columns, resolved against the header row of a sheet. All column names are replaced by their index, the configured names are
+ * checked once and the ruleset types are resolved, so the rows can be mapped without any further lookup.
+ */
+@Getter
+public class ColumnBindingPlan {
+
+    private final HeaderIndex header;
+
+    private final FieldBinding firstField;
+    // null, if the second field is disabled
+    private final FieldBinding secondField;
+
+    private final List<FieldBinding> additionalFields;
+    private final List<PersonBinding> persons;
+    private final List<CorporateBinding> corporates;
+    private final List<GroupBinding> groups;
+
+    // index of the identifier column, -1 if no additional field is marked as identifier
+    private final int identifierColumn;
+
+    // true, if any field is marked as identifier
+    private final boolean identifierConfigured;
+
+    private ColumnBindingPlan(HeaderIndex header, FieldBinding firstField, FieldBinding secondField, List<FieldBinding> additionalFields,
+            List<PersonBinding> persons, List<CorporateBinding> corporates, List<GroupBinding> groups, int identifierColumn) {
+        this.header = header;
+        this.firstField = firstField;
+        this.secondField = secondField;
+        this.additionalFields = additionalFields;
+        this.persons = persons;
+        this.corporates = corporates;
+        this.groups = groups;
+        this.identifierColumn = identifierColumn;
+        identifierConfigured = firstField.getColumn().isIdentifierField() || secondField != null && secondField.getColumn().isIdentifierField()
+                || additionalFields.stream().anyMatch(f -> f.getColumn().isIdentifierField());
+    }
+
+    /**
+     * Create the plan for a sheet
+     *
+     * @param firstColumn configuration of the first hierarchical field
+     * @param secondColumn configuration of the second hierarchical field, can be null
+     * @param columnList additional fields
+     * @param personList person fields
+     * @param corpList corporate fields
+     * @param groupList metadata groups
+     * @param header header row of the sheet
+     * @param types resolves the ruleset types, can be null if only EAD data is created
+     * @return the plan
+     */
+    public static ColumnBindingPlan compile(MetadataColumn firstColumn, MetadataColumn secondColumn, List<MetadataColumn> columnList,
+            List<PersonColumn> personList, List<CorporateColumn> corpList, List<GroupColumns> groupList, HeaderIndex header,
+            RulesetTypeCache types) {
+
+        FieldBinding first = new FieldBinding(firstColumn, header, types);
+        FieldBinding second = secondColumn == null ? null : new FieldBinding(secondColumn, header, types);
+
+        List<FieldBinding> additionalFields = new ArrayList<>(columnList.size());
+        int identifierColumn = -1;
+        for (MetadataColumn col : columnList) {
+            FieldBinding binding = new FieldBinding(col, header, types);
+            additionalFields.add(binding);
+            if (col.isIdentifierField()) {
+                identifierColumn = binding.getValueColumn();
+            }
+        }
+
+        List<PersonBinding> persons = new ArrayList<>(personList.size());
+        for (PersonColumn col : personList) {
+            persons.add(new PersonBinding(col, header, types));
+        }
+
+        List<CorporateBinding> corporates = new ArrayList<>(corpList.size());
+        for (CorporateColumn col : corpList) {
+            corporates.add(new CorporateBinding(col, header, types));
+        }
+
+        List<GroupBinding> groups = new ArrayList<>(groupList.size());
+        for (GroupColumns gmo : groupList) {
+            groups.add(new GroupBinding(gmo, header, types));
+        }
+
+        return new ColumnBindingPlan(header, first, second, Collections.unmodifiableList(additionalFields), Collections.unmodifiableList(persons),
+                Collections.unmodifiableList(corporates), Collections.unmodifiableList(groups), identifierColumn);
+    }
+
+    private static MetadataType getMetadataType(RulesetTypeCache types, String name) {
+        return types == null ? null : types.getMetadataType(name);
+    }
+
+    /**
+     * check that all configured ruleset names exist. Roles that are taken from a column are checked when they are used.
+     *
+     * @return the unknown names, an empty list if all types were found
+     */
+    public List<String> getUnknownTypes() {
+        List<String> unknown = new ArrayList<>();
+        checkField(firstField, unknown);
+        if (secondField != null) {
+            checkField(secondField, unknown);
+        }
+        for (FieldBinding field : additionalFields) {
+            checkField(field, unknown);
+        }
+        for (PersonBinding person : persons) {
+            if (person.getMetsRoleColumn() == -1 && StringUtils.isNotBlank(person.getRulesetName()) && person.getMetadataType() == null) {
+                unknown.add(person.getRulesetName());
+            }
+        }
+        for (CorporateBinding corporate : corporates) {
+            if (corporate.getMetsRoleColumn() == -1 && StringUtils.isNotBlank(corporate.getRulesetName()) && corporate.getMetadataType() == null) {
+                unknown.add(corporate.getRulesetName());
+            }
+        }
+        for (GroupBinding group : groups) {
+            if (group.getRulesetName() != null) {
+                if (group.getGroupType() == null) {
+                    unknown.add(group.getRulesetName());
+                }
+                for (FieldBinding field : group.getFields()) {
+                    checkField(field, unknown);
+                }
+            }
+        }
+        return unknown;
+    }
+
+    private static void checkField(FieldBinding field, List<String> unknown) {
+        if (field.getRulesetName() != null && field.getMetadataType() == null) {
+            unknown.add(field.getRulesetName());
+        }
+    }
+
+    /**
+     * A single metadata field
+     */
+    @Getter
+    public static class FieldBinding {
+
+        private final MetadataColumn column;
+
+        // name and area of the ead field, name is null if no ead field is configured
+        private final String eadName;
+        private final int level;
+
+        // name of the ruleset metadata, null if the field is not used in the mets file
+        private final String rulesetName;
+        private final MetadataType metadataType;
+
+        private final int valueColumn;
+        private final int authorityColumn;
+
+        // the value is used as label of the ead node
+        private final boolean title;
+
+        FieldBinding(MetadataColumn column, HeaderIndex header, RulesetTypeCache types) {
+            this.column = column;
+            eadName = StringUtils.isNotBlank(column.getEadName()) ? column.getEadName() : null;
+            level = column.getLevel();
+            rulesetName = StringUtils.isNotBlank(column.getRulesetName()) ? column.getRulesetName() : null;
+            metadataType = getMetadataType(types, rulesetName);
+            valueColumn = header.indexOf(column.getExcelColumnName());
+            authorityColumn = StringUtils.isNotBlank(column.getAuthorityColumnName()) ? header.indexOf(column.getAuthorityColumnName()) : -1;
+            title = "TitleDocMain".equals(column.getRulesetName());
+        }
+
+        public String getValue(RowData data) {
+            return data.get(valueColumn);
+        }
+
+        public String getAuthorityData(RowData data) {
+            return authorityColumn == -1 ? null : data.get(authorityColumn);
+        }
+    }
+
+    /**
+     * A person field. The role can be fixed or taken from a column with the name of the configured role.
+     */
+    @Getter
+    public static class PersonBinding {
+
+        private final PersonColumn column;
+
+        private final String eadName;
+        private final int level;
+        private final String rulesetName;
+
+        // type of the configured role, used when the role is not taken from a column
+        private final MetadataType metadataType;
+
+        private final boolean splitName;
+        private final String splitChar;
+        private final boolean firstNameIsFirst;
+
+        private final int nameColumn;
+        private final int firstnameColumn;
+        private final int authorityColumn;
+
+        // columns containing the role, -1 if the configured role is used
+        private final int eadRoleColumn;
+        private final int metsRoleColumn;
+
+        PersonBinding(PersonColumn column, HeaderIndex header, RulesetTypeCache types) {
+            this.column = column;
+            eadName = column.getEadName();
+            level = column.getLevel();
+            rulesetName = column.getRulesetName();
+            metadataType = getMetadataType(types, rulesetName);
+            splitName = column.isSplitName();
+            splitChar = column.getSplitChar();
+            firstNameIsFirst = column.isFirstNameIsFirst();
+            nameColumn = header.indexOf(column.getNameColumnName());
+            firstnameColumn = header.indexOf(column.getFirstColumnName());
+            authorityColumn = StringUtils.isNotBlank(column.getAuthorityColumnName()) ? header.indexOf(column.getAuthorityColumnName()) : -1;
+            eadRoleColumn = header.indexOf(eadName);
+            metsRoleColumn = header.indexOf(rulesetName);
+        }
+
+        /**
+         * get first name and last name of the person
+         *
+         * @param data the row
+         * @return array with first name and last name, both can be null
+         */
+        public String[] getNames(RowData data) {
+            String firstname = null;
+            String lastname = null;
+            if (splitName) {
+                String name = data.get(nameColumn);
+                if (StringUtils.isNotBlank(name)) {
+                    int pos = name.lastIndexOf(splitChar);
+                    if (pos != -1) {
+                        if (firstNameIsFirst) {
+                            firstname = name.substring(0, pos);
+                            lastname = name.substring(pos + 1);
+                        } else {
+                            lastname = name.substring(0, pos);
+                            firstname = name.substring(pos + 1);
+                        }
+                    } else {
+                        firstname = "";
+                        lastname = name;
+                    }
+                }
+            } else {
+                firstname = data.get(firstnameColumn);
+                lastname = data.get(nameColumn);
+            }
+            return new String[] { firstname, lastname };
+        }
+
+        public String getAuthorityData(RowData data) {
+            return authorityColumn == -1 ? null : data.get(authorityColumn);
+        }
+
+        public String getEadRole(RowData data) {
+            // column header was configured, use value from column
+            return data.hasColumn(eadRoleColumn) ? data.get(eadRoleColumn) : eadName;
+        }
+
+        public String getMetsRole(RowData data) {
+            return data.hasColumn(metsRoleColumn) ? data.get(metsRoleColumn) : rulesetName;
+        }
+    }
+
+    /**
+     * A corporate field. The role can be fixed or taken from a column with the name of the configured role.
+     */
+    @Getter
+    public static class CorporateBinding {
+
+        private final CorporateColumn column;
+
+        private final String eadName;
+        private final int level;
+        private final String rulesetName;
+
+        // type of the configured role, used when the role is not taken from a column
+        private final MetadataType metadataType;
+
+        private final boolean splitName;
+        private final Pattern splitPattern;
+
+        private final int nameColumn;
+        private final int subNameColumn;
+        private final int partNameColumn;
+        private final int authorityColumn;
+
+        // columns containing the role, -1 if the configured role is used
+        private final int eadRoleColumn;
+        private final int metsRoleColumn;
+
+        CorporateBinding(CorporateColumn column, HeaderIndex header, RulesetTypeCache types) {
+            this.column = column;
+            eadName = column.getEadName();
+            level = column.getLevel();
+            rulesetName = column.getRulesetName();
+            metadataType = getMetadataType(types, rulesetName);
+            splitName = column.isSplitName();
+            splitPattern = splitName ? Pattern.compile(column.getSplitChar()) : null;
+            nameColumn = header.indexOf(column.getNameColumnName());
+            subNameColumn = header.indexOf(column.getSubNameColumnName());
+            partNameColumn = header.indexOf(column.getPartNameColumnName());
+            authorityColumn = StringUtils.isNotBlank(column.getAuthorityColumnName()) ? header.indexOf(column.getAuthorityColumnName()) : -1;
+            eadRoleColumn = header.indexOf(eadName);
+            metsRoleColumn = header.indexOf(rulesetName);
+        }
+
+        /**
+         * get main name, sub name and part name of the corporate
+         *
+         * @param data the row
+         * @param defaultValue value for names that are not filled when the name is split
+         * @return array with main name, sub name and part name
+         */
+        public String[] getNames(RowData data, String defaultValue) {
+            String mainName = defaultValue;
+            String subName = defaultValue;
+            String partName = defaultValue;
+            if (splitName) {
+                String name = data.get(nameColumn);
+                if (StringUtils.isNotBlank(name)) {
+                    String[] nameParts = splitPattern.split(name);
+                    mainName = nameParts[0];
+                    if (nameParts.length > 1) {
+                        subName = nameParts[1];
+                    }
+                    if (nameParts.length > 2) {
+                        partName = nameParts[2];
+                    }
+                }
+            } else {
+                mainName = data.get(nameColumn);
+                subName = data.get(subNameColumn);
+                partName = data.get(partNameColumn);
+            }
+            return new String[] { mainName, subName, partName };
+        }
+
+        public String getAuthorityData(RowData data) {
+            return authorityColumn == -1 ? null : data.get(authorityColumn);
+        }
+
+        public String getEadRole(RowData data) {
+            return data.hasColumn(eadRoleColumn) ? data.get(eadRoleColumn) : eadName;
+        }
+
+        public String getMetsRole(RowData data) {
+            return data.hasColumn(metsRoleColumn) ? data.get(metsRoleColumn) : rulesetName;
+        }
+    }
+
+    /**
+     * A metadata group with its sub fields
+     */
+    @Getter
+    public static class GroupBinding {
+
+        private final GroupColumns column;
+
+        private final String eadName;
+        private final int level;
+
+        // null, if the group is not used in the mets file
+        private final String rulesetName;
+        private final MetadataGroupType groupType;
+
+        private final List<FieldBinding> fields;
+
+        GroupBinding(GroupColumns column, HeaderIndex header, RulesetTypeCache types) {
+            this.column = column;
+            eadName = column.getEadName();
+            level = column.getLevel();
+            rulesetName = StringUtils.isNotBlank(column.getRulesetName()) ? column.getRulesetName() : null;
+            groupType = types == null ? null : types.getGroupType(rulesetName);
+            List<FieldBinding> list = new ArrayList<>(column.getMetadataList().size());
+            for (MetadataColumn col : column.getMetadataList()) {
+                list.add(new FieldBinding(col, header, types));
+            }
+            fields = Collections.unmodifiableList(list);
+        }
+    }
+}
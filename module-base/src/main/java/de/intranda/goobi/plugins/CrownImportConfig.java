@@ -0,0 +1,299 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.commons.configuration.SubnodeConfiguration;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.configuration.tree.xpath.XPathExpressionEngine;
+
+import de.intranda.goobi.plugins.ImageTransfer.TransferMode;
+import de.sub.goobi.config.ConfigPlugins;
+import de.sub.goobi.config.ConfigurationHelper;
+import lombok.Getter;
+
+/**
+ * The configuration of a single template. The configuration file is parsed once, the result is cached for each template and only created again
+ * when the modification time of the file changes.
+ *
+ * All values are read only, the instances are shared between all imports and threads. The column definitions must not be changed.
+ */
+@Getter
+public class CrownImportConfig {
+
+    private static final Map<String, CrownImportConfig> CACHE = new ConcurrentHashMap<>();
+
+    // modification time of the configuration file this instance was created from
+    private final long configurationModified;
+
+    private final boolean runAsGoobiScript;
+
+    // read xlsx files row by row instead of loading the complete workbook
+    private final boolean streamingReader;
+
+    // evaluate formulas or use the results stored in the file
+    private final boolean evaluateFormulas;
+
+    private final String eadFileName;
+
+    private final int startRow;
+    private final int headerRowNumber;
+
+    // metadata information
+    private final String docType;
+    private final String nodeTypeColumnName;
+
+    private final MetadataColumn firstColumn;
+    // null, if the second field is disabled
+    private final MetadataColumn secondColumn;
+
+    private final List<MetadataColumn> columnList;
+    private final List<PersonColumn> personList;
+    private final List<CorporateColumn> corpList;
+    private final List<GroupColumns> groupList;
+
+    // maximum length of each component that is to be used to generate the process title
+    private final int lengthLimit;
+    // separator that will be used to join all components into a process title
+    private final String separator;
+    private final List<String> titleParts;
+
+    private final String imageRootFolder;
+    private final boolean importAllFiles;
+
+    // preferred derivatives, if more than one version of an image exists
+    private final DerivativeSelection derivativeSelection;
+
+    // defines how images are transferred into the process folder
+    private final TransferMode transferMode;
+
+    // number of images that are copied in parallel, in total and for each configured volume
+    private final int copyThreads;
+    private final Map<String, Integer> copyVolumeLimits;
+
+    // number of records that are created in parallel
+    private final int processThreads;
+
+    // only import records that are new or were changed since the last import
+    private final boolean deltaImport;
+
+    // number of rows and records between two checkpoints, 0 to disable checkpoints
+    private final int checkpointInterval;
+    // continue the last import from its checkpoint
+    private final boolean resume;
+
+    // import all sheets of the workbook or the sheets with the configured names, otherwise only the first sheet
+    private final boolean importAllSheets;
+    private final List<String> sheetNames;
+    // number of sheets that are decoded in parallel
+    private final int sheetThreads;
+
+    // csv and tsv files: separator of csv files, encoding, column with the hierarchy level and column that marks the rows of the processes
+    private final String delimitedSeparator;
+    private final String delimitedEncoding;
+    private final String levelColumnName;
+    private final String processColumnName;
+
+    // reject records whose process title is used twice or already exists, before any file is written
+    private final boolean checkProcessTitles;
+
+    // create the METS files in chunks while the file is read, number of records in a chunk and number of chunks that are kept in memory
+    private final boolean chunkedImport;
+    private final int chunkSize;
+    private final int chunkWindow;
+
+    // write the METS files with the StAX writer, otherwise with MetsMods
+    private final boolean streamMetsWriter;
+
+    /**
+     * Get the configuration for a template. The cached instance is used as long as the configuration file is unchanged.
+     *
+     * @param pluginTitle title of the plugin, used to find the configuration file
+     * @param template name of the process template
+     * @return the configuration of the template or the default configuration
+     */
+    public static CrownImportConfig getConfig(String pluginTitle, String template) {
+        long modified = getConfigurationModified(pluginTitle);
+        String key = pluginTitle + "/" + template;
+        CrownImportConfig config = CACHE.get(key);
+        if (config == null || config.configurationModified != modified) {
+            config = new CrownImportConfig(readTemplateConfig(pluginTitle, template), modified);
+            CACHE.put(key, config);
+        }
+        return config;
+    }
+
+    private static long getConfigurationModified(String pluginTitle) {
+        Path configFile = Paths.get(ConfigurationHelper.getInstance().getConfigurationFolder(), "plugin_" + pluginTitle + ".xml");
+        try {
+            return Files.getLastModifiedTime(configFile).toMillis();
+        } catch (IOException e) {
+            // file does not exist, the configuration is read once
+            return 0;
+        }
+    }
+
+    private static SubnodeConfiguration readTemplateConfig(String pluginTitle, String template) {
+        XMLConfiguration xmlConfig = ConfigPlugins.getPluginConfig(pluginTitle);
+        xmlConfig.setExpressionEngine(new XPathExpressionEngine());
+        try {
+            return xmlConfig.configurationAt("//config[./template = '" + template + "']");
+        } catch (IllegalArgumentException e) {
+            return xmlConfig.configurationAt("//config[./template = '*']");
+        }
+    }
+
+    /**
+     * read the configuration of a template, use {@link #getConfig(String, String)} to get the cached instance
+     *
+     * @param myconfig the config element of the template
+     * @param configurationModified modification time of the configuration file
+     */
+    CrownImportConfig(SubnodeConfiguration myconfig, long configurationModified) {
+        this.configurationModified = configurationModified;
+
+        runAsGoobiScript = myconfig.getBoolean("/runAsGoobiScript", false);
+        streamingReader = myconfig.getBoolean("/streamingReader", false);
+        evaluateFormulas = !"cached".equalsIgnoreCase(myconfig.getString("/formulas", "evaluate"));
+        imageRootFolder = myconfig.getString("/images");
+
+        importAllFiles = myconfig.getBoolean("/images/@importAllFiles", false);
+        processThreads = myconfig.getInt("/processThreads", 1);
+        deltaImport = myconfig.getBoolean("/deltaImport", false);
+        checkpointInterval = myconfig.getInt("/checkpoint/@interval", 0);
+        resume = myconfig.getBoolean("/checkpoint/@resume", false);
+        importAllSheets = myconfig.getBoolean("/sheets/@all", false);
+        sheetNames = Collections.unmodifiableList(Arrays.asList(myconfig.getStringArray("/sheets/sheet")));
+        sheetThreads = Math.max(1, myconfig.getInt("/sheets/@threads", 1));
+        delimitedSeparator = myconfig.getString("/delimited/@separator", ",");
+        delimitedEncoding = myconfig.getString("/delimited/@encoding", "UTF-8");
+        levelColumnName = myconfig.getString("/delimited/@levelColumn");
+        processColumnName = myconfig.getString("/delimited/@processColumn");
+        checkProcessTitles = myconfig.getBoolean("/checkProcessTitles", true);
+        chunkedImport = myconfig.getBoolean("/recordChunks/@enabled", false);
+        chunkSize = Math.max(1, myconfig.getInt("/recordChunks/@size", 500));
+        chunkWindow = Math.max(1, myconfig.getInt("/recordChunks/@window", 2));
+        streamMetsWriter = "stream".equalsIgnoreCase(myconfig.getString("/metsWriter", "ugh"));
+        transferMode = TransferMode.getMode(myconfig.getString("/images/@transfer", "copy"));
+        copyThreads = myconfig.getInt("/imageCopy/@threads", 1);
+        Map<String, Integer> volumeLimits = new HashMap<>();
+        for (HierarchicalConfiguration volume : myconfig.configurationsAt("/imageCopy/volume")) {
+            volumeLimits.put(volume.getString("@path"), volume.getInt("@threads", 1));
+        }
+        copyVolumeLimits = Collections.unmodifiableMap(volumeLimits);
+
+        String[] derivatives = myconfig.getStringArray("/derivative");
+        if (derivatives.length == 0) {
+            derivativeSelection = new DerivativeSelection(DerivativeSelection.DEFAULT_SUFFIXES);
+        } else {
+            derivativeSelection = new DerivativeSelection(Arrays.asList(derivatives));
+        }
+
+        eadFileName = myconfig.getString("/basex/filename");
+
+        startRow = myconfig.getInt("/startRow", 0);
+        headerRowNumber = myconfig.getInt("/headerRow", 0);
+
+        nodeTypeColumnName = myconfig.getString("/metadata/nodetype");
+        docType = myconfig.getString("/metadata/doctype", "Monograph");
+
+        SubnodeConfiguration firstFieldDefinition = myconfig.configurationAt("/metadata/firstField");
+
+        firstColumn = new MetadataColumn();
+        firstColumn.setRulesetName(firstFieldDefinition.getString("@metadataField"));
+        firstColumn.setEadName(firstFieldDefinition.getString("@eadField"));
+        firstColumn.setLevel(firstFieldDefinition.getInt("@level", 0));
+        firstColumn.setIdentifierField(firstFieldDefinition.getBoolean("@identifier", false));
+        firstColumn.setAuthorityColumnName(firstFieldDefinition.getString("@authorityColumn"));
+
+        SubnodeConfiguration secondFieldDefinition = myconfig.configurationAt("/metadata/secondField");
+        if (secondFieldDefinition.getBoolean("@enabled")) {
+            secondColumn = new MetadataColumn();
+            secondColumn.setRulesetName(secondFieldDefinition.getString("@metadataField"));
+            secondColumn.setEadName(secondFieldDefinition.getString("@eadField"));
+            secondColumn.setLevel(secondFieldDefinition.getInt("@level", 0));
+            secondColumn.setIdentifierField(secondFieldDefinition.getBoolean("@identifier", false));
+            secondColumn.setAuthorityColumnName(secondFieldDefinition.getString("@authorityColumn"));
+        } else {
+            secondColumn = null;
+        }
+
+        List<MetadataColumn> columns = new ArrayList<>();
+        for (HierarchicalConfiguration field : myconfig.configurationsAt("/metadata/additionalField")) {
+            columns.add(readMetadataColumn(field));
+        }
+        columnList = Collections.unmodifiableList(columns);
+
+        List<PersonColumn> persons = new ArrayList<>();
+        for (HierarchicalConfiguration field : myconfig.configurationsAt("/metadata/personField")) {
+            PersonColumn pc = new PersonColumn();
+            pc.setRulesetName(field.getString("@metadataField"));
+            pc.setEadName(field.getString("@eadField"));
+            pc.setAuthorityColumnName(field.getString("@authorityColumn"));
+            pc.setLevel(field.getInt("@level", 0));
+            pc.setNameColumnName(field.getString("/nameColumn"));
+            pc.setSplitName(field.getBoolean("/nameColumn/@splitName", false));
+            pc.setSplitChar(field.getString("/nameColumn/@splitChar", ","));
+            pc.setFirstNameIsFirst(field.getBoolean("/nameColumn/@firstNameIsFirstPart", false));
+            pc.setFirstColumnName(field.getString("/firstnameColumn"));
+            persons.add(pc);
+        }
+        personList = Collections.unmodifiableList(persons);
+
+        List<CorporateColumn> corporates = new ArrayList<>();
+        for (HierarchicalConfiguration field : myconfig.configurationsAt("/metadata/corporateField")) {
+            CorporateColumn cc = new CorporateColumn();
+            cc.setRulesetName(field.getString("@metadataField"));
+            cc.setEadName(field.getString("@eadField"));
+            cc.setAuthorityColumnName(field.getString("@authorityColumn"));
+            cc.setLevel(field.getInt("@level", 0));
+            cc.setNameColumnName(field.getString("/nameColumn"));
+            cc.setSplitName(field.getBoolean("/nameColumn/@splitName", false));
+            cc.setSplitChar(field.getString("/nameColumn/@splitChar", ","));
+            cc.setSubNameColumnName(field.getString("/subNameColumn"));
+            cc.setPartNameColumnName(field.getString("/partNameColumn"));
+            corporates.add(cc);
+        }
+        corpList = Collections.unmodifiableList(corporates);
+
+        List<GroupColumns> groups = new ArrayList<>();
+        for (HierarchicalConfiguration md : myconfig.configurationsAt("/metadata/group")) {
+            GroupColumns grp = new GroupColumns();
+            grp.setRulesetName(md.getString("@metadataField"));
+            grp.setEadName(md.getString("@eadField"));
+            grp.setLevel(md.getInt("@level", 0));
+
+            for (HierarchicalConfiguration sub : md.configurationsAt("/field")) {
+                grp.addMetadataColumn(readMetadataColumn(sub));
+            }
+            groups.add(grp);
+        }
+        groupList = Collections.unmodifiableList(groups);
+
+        // process title generation
+        lengthLimit = myconfig.getInt("/metadata/lengthLimit", 0);
+        separator = myconfig.getString("/metadata/separator", "_");
+        titleParts = Collections.unmodifiableList(Arrays.asList(myconfig.getStringArray("/metadata/title")));
+    }
+
+    private static MetadataColumn readMetadataColumn(HierarchicalConfiguration field) {
+        MetadataColumn mc = new MetadataColumn();
+        mc.setRulesetName(field.getString("@metadataField"));
+        mc.setEadName(field.getString("@eadField"));
+        mc.setLevel(field.getInt("@level", 0));
+        mc.setIdentifierField(field.getBoolean("@identifier", false));
+        mc.setExcelColumnName(field.getString("@column"));
+        mc.setAuthorityColumnName(field.getString("@authorityColumn"));
+        return mc;
+    }
+}
@@ -1,43 +1,40 @@
 package de.intranda.goobi.plugins;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
-
-import org.apache.commons.configuration.HierarchicalConfiguration;
-import org.apache.commons.configuration.SubnodeConfiguration;
-import org.apache.commons.configuration.XMLConfiguration;
-import org.apache.commons.configuration.reloading.FileChangedReloadingStrategy;
-import org.apache.commons.configuration.tree.xpath.XPathExpressionEngine;
-import org.apache.commons.dbutils.QueryRunner;
-import org.apache.commons.io.input.BOMInputStream;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import javax.xml.stream.XMLStreamException;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.CellType;
-import org.apache.poi.ss.usermodel.CellValue;
-import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
-import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.goobi.interfaces.IArchiveManagementAdministrationPlugin;
 import org.goobi.interfaces.IEadEntry;
 import org.goobi.interfaces.IFieldValue;
@@ -55,13 +52,16 @@ import org.goobi.production.plugin.interfaces.IImportPluginVersion3;
 import org.goobi.production.plugin.interfaces.IPlugin;
 import org.goobi.production.properties.ImportProperty;
 
-import de.sub.goobi.config.ConfigPlugins;
+import de.intranda.goobi.plugins.ColumnBindingPlan.CorporateBinding;
+import de.intranda.goobi.plugins.ColumnBindingPlan.FieldBinding;
+import de.intranda.goobi.plugins.ColumnBindingPlan.GroupBinding;
+import de.intranda.goobi.plugins.ColumnBindingPlan.PersonBinding;
+import de.intranda.goobi.plugins.ImportMetrics.Phase;
 import de.sub.goobi.forms.MassImportForm;
 import de.sub.goobi.helper.ProcessTitleGenerator;
 import de.sub.goobi.helper.StorageProvider;
 import de.sub.goobi.helper.enums.ManipulationType;
 import de.sub.goobi.helper.exceptions.ImportPluginException;
-import de.sub.goobi.persistence.managers.MySQLHelper;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
@@ -69,6 +69,7 @@ import net.xeoh.plugins.base.annotations.PluginImplementation;
 import ugh.dl.Corporate;
 import ugh.dl.DigitalDocument;
 import ugh.dl.DocStruct;
+import ugh.dl.DocStructType;
 import ugh.dl.Fileformat;
 import ugh.dl.Metadata;
 import ugh.dl.MetadataGroup;
@@ -78,9 +79,7 @@ import ugh.dl.Person;
 import ugh.dl.Prefs;
 import ugh.exceptions.DocStructHasNoTypeException;
 import ugh.exceptions.MetadataTypeNotAllowedException;
-import ugh.exceptions.PreferencesException;
 import ugh.exceptions.UGHException;
-import ugh.exceptions.WriteException;
 import ugh.fileformats.mets.MetsMods;
 
 @PluginImplementation
@@ -98,7 +97,6 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
     private List<ImportType> importTypes;
 
     @Getter
-    @Setter
     private Prefs prefs;
     @Getter
     @Setter
@@ -117,40 +115,36 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
     @Setter
     private String workflowName;
 
-    private boolean runAsGoobiScript = false;
+    // configuration of the current template
+    private transient CrownImportConfig config;
+    // true, if the configuration was set directly and the configuration file is not read
+    private transient boolean configFixed;
 
     private IArchiveManagementAdministrationPlugin archivePlugin;
 
     private transient IEadEntry rootEntry;
 
-    private int startRow;
-
-    private String eadFileName;
+    // identifiers of the nodes of an existing archive, loaded on first use
+    private transient ExistingNodeIndex existingNodes;
 
-    // metadata information
-    private String docType;
+    // query for the existing process titles, null to use the database
+    private transient ExistingProcessTitles.TitleQuery titleQuery;
 
-    private String imageRootFolder;
+    // progress of the current import, null if no checkpoints are configured
+    private transient ImportCheckpoint checkpoint;
 
-    private String nodeTypeColumnName = null;
-    private int headerRowNumber;
+    // titles of the records of the previous chunks, null if the file is not imported in chunks
+    private transient Map<String, String> usedTitles;
 
-    private transient List<MetadataColumn> columnList = new ArrayList<>();
+    // resolved ruleset names of the current ruleset, replaced together with the ruleset
+    private transient volatile RulesetTypeCache typeCache;
 
-    private transient List<PersonColumn> personList = new ArrayList<>();
-    private transient List<CorporateColumn> corpList = new ArrayList<>();
-    private transient List<GroupColumns> groupList = new ArrayList<>();
-    private transient MetadataColumn firstColumn = null;
-    private transient MetadataColumn secondColumn = null;
-
-    // maximum length of each component that is to be used to generate the process title
-    private int lengthLimit;
-    // separator that will be used to join all components into a process title
-    private String separator;
-
-    private transient List<String> titleParts = new ArrayList<>();
-
-    private boolean importAllFiles = false;
+    // ruleset types used for every record, resolved before the records are created
+    private transient DocStructType logicalType;
+    private transient DocStructType physicalType;
+    private transient MetadataType imagePathType;
+    private transient MetadataType nodeIdType;
+    private transient MetadataType collectionType;
 
     /**
      * define what kind of import plugin this is
@@ -161,132 +155,176 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
     }
 
     /**
-     * read the configuration file
+     * get the configuration of the current template, the configuration is only read again if the file was changed
      */
     private void readConfig() {
-        XMLConfiguration xmlConfig = ConfigPlugins.getPluginConfig(title);
-        xmlConfig.setExpressionEngine(new XPathExpressionEngine());
-        xmlConfig.setReloadingStrategy(new FileChangedReloadingStrategy());
-
-        SubnodeConfiguration myconfig = null;
-        try {
-            myconfig = xmlConfig.configurationAt("//config[./template = '" + workflowName + "']");
-        } catch (IllegalArgumentException e) {
-            myconfig = xmlConfig.configurationAt("//config[./template = '*']");
+        if (!configFixed) {
+            config = CrownImportConfig.getConfig(title, workflowName);
         }
+    }
 
-        if (myconfig != null) {
-            runAsGoobiScript = myconfig.getBoolean("/runAsGoobiScript", false);
-            imageRootFolder = myconfig.getString("/images");
+    /**
+     * use the given configuration instead of reading the configuration file, used by the benchmarks
+     */
+    void setConfig(CrownImportConfig config) {
+        this.config = config;
+        configFixed = config != null;
+    }
 
-            importAllFiles = myconfig.getBoolean("/images/@importAllFiles", false);
+    /**
+     * use the given archive instead of loading it with the archive management plugin, used by the benchmarks
+     */
+    void setArchivePlugin(IArchiveManagementAdministrationPlugin archivePlugin) {
+        this.archivePlugin = archivePlugin;
+        rootEntry = archivePlugin.getRootElement();
+    }
 
-            eadFileName = myconfig.getString("/basex/filename");
+    /**
+     * find the existing process titles with the given query instead of the database, used by the tests
+     */
+    void setTitleQuery(ExistingProcessTitles.TitleQuery titleQuery) {
+        this.titleQuery = titleQuery;
+    }
 
-            startRow = myconfig.getInt("/startRow", 0);
-            headerRowNumber = myconfig.getInt("/headerRow", 0);
+    /**
+     * set the ruleset, the cache of the ruleset types is created for it before any record is processed
+     */
+    public void setPrefs(Prefs prefs) {
+        this.prefs = prefs;
+        typeCache = prefs == null ? null : new RulesetTypeCache(prefs);
+    }
 
-            nodeTypeColumnName = myconfig.getString("/metadata/nodetype");
-            docType = myconfig.getString("/metadata/doctype", "Monograph");
+    /**
+     * This method is used to generate records based on the imported data these records will then be used later to generate the Goobi processes
+     */
+    @Override
+    public List<Record> generateRecordsFromFile() {
+        if (StringUtils.isBlank(workflowName)) {
+            workflowName = form.getTemplate().getTitel();
+        }
+        readConfig();
+        if (config.isChunkedImport()) {
+            return generatePreparedRecords();
+        }
+        // the list where the records are stored
+        List<Record> recordList = new ArrayList<>();
+        boolean complete = false;
+        try {
+            readRecords(recordList::add);
+            complete = true;
+        } catch (IOException | RuntimeException e) {
+            log.error(e);
+        }
 
-            SubnodeConfiguration firstFieldDefinition = myconfig.configurationAt("/metadata/firstField");
+        // only return new or changed records
+        Predicate<Record> changed = getDeltaFilter();
+        if (changed != null) {
+            int numberOfRecords = recordList.size();
+            recordList.removeIf(changed.negate());
+            log.info("Delta import: {} of {} records are new or changed", recordList.size(), numberOfRecords);
+        }
+        if (complete && checkpoint != null) {
+            checkpoint.rowsFinished(getRecordIds(recordList));
+        }
 
-            firstColumn = new MetadataColumn();
-            firstColumn.setRulesetName(firstFieldDefinition.getString("@metadataField"));
-            firstColumn.setEadName(firstFieldDefinition.getString("@eadField"));
-            firstColumn.setLevel(firstFieldDefinition.getInt("@level", 0));
-            firstColumn.setIdentifierField(firstFieldDefinition.getBoolean("@identifier", false));
-            firstColumn.setAuthorityColumnName(firstFieldDefinition.getString("@authorityColumn"));
+        // return the list of all generated records
+        return recordList;
+    }
 
-            SubnodeConfiguration secondFieldDefinition = myconfig.configurationAt("/metadata/secondField");
-            if (secondFieldDefinition.getBoolean("@enabled")) {
-                secondColumn = new MetadataColumn();
-                secondColumn.setRulesetName(secondFieldDefinition.getString("@metadataField"));
-                secondColumn.setEadName(secondFieldDefinition.getString("@eadField"));
-                secondColumn.setLevel(secondFieldDefinition.getInt("@level", 0));
-                secondColumn.setIdentifierField(secondFieldDefinition.getBoolean("@identifier", false));
-                secondColumn.setAuthorityColumnName(secondFieldDefinition.getString("@authorityColumn"));
+    /**
+     * Read the file in a background thread and create the METS files of each chunk of records while the next rows are read. The records are
+     * returned with their import objects, {@link #generateFiles(List)} only returns these objects, also if it is called for single records by
+     * GoobiScript.
+     */
+    private List<Record> generatePreparedRecords() {
+        List<Record> recordList = new ArrayList<>();
+        usedTitles = new HashMap<>();
+        try (RecordChunkReader chunks = generateRecordChunks()) {
+            while (chunks.hasNext()) {
+                List<Record> records = chunks.next();
+                List<ImportObject> answer = generateFilesOfPart(records);
+                for (int i = 0; i < records.size(); i++) {
+                    recordList.add(new PreparedRecord(records.get(i), answer.get(i)));
+                }
             }
+        } catch (RuntimeException e) {
+            // the records of the chunks before the error are returned, like the records before the error of a regular import
+            log.error(e);
+        } finally {
+            usedTitles = null;
+        }
+        return recordList;
+    }
 
-            columnList.clear();
-
-            for (HierarchicalConfiguration field : myconfig.configurationsAt("/metadata/additionalField")) {
-                MetadataColumn mc = extracted(field);
-                columnList.add(mc);
-            }
-            personList.clear();
-
-            for (HierarchicalConfiguration field : myconfig.configurationsAt("/metadata/personField")) {
-                PersonColumn pc = new PersonColumn();
-                pc.setRulesetName(field.getString("@metadataField"));
-                pc.setEadName(field.getString("@eadField"));
-                pc.setAuthorityColumnName(field.getString("@authorityColumn"));
-                pc.setLevel(field.getInt("@level", 0));
-                pc.setNameColumnName(field.getString("/nameColumn"));
-                pc.setSplitName(field.getBoolean("/nameColumn/@splitName", false));
-                pc.setSplitChar(field.getString("/nameColumn/@splitChar", ","));
-                pc.setFirstNameIsFirst(field.getBoolean("/nameColumn/@firstNameIsFirstPart", false));
-                pc.setFirstColumnName(field.getString("/firstnameColumn"));
-                personList.add(pc);
-            }
+    /**
+     * Read the file in a background thread and return the records in chunks of the configured size. The nodes of the archive are created while
+     * the chunks are read, at most the configured number of chunks waits in memory.
+     *
+     * @return the chunks of the records, the reader must be closed if not all chunks are read
+     */
+    private RecordChunkReader generateRecordChunks() {
+        if (StringUtils.isBlank(workflowName)) {
+            workflowName = form.getTemplate().getTitel();
+        }
+        readConfig();
+        Predicate<Record> changed = getDeltaFilter();
 
-            corpList.clear();
-            for (HierarchicalConfiguration field : myconfig.configurationsAt("/metadata/corporateField")) {
-                CorporateColumn cc = new CorporateColumn();
-                cc.setRulesetName(field.getString("@metadataField"));
-                cc.setEadName(field.getString("@eadField"));
-                cc.setAuthorityColumnName(field.getString("@authorityColumn"));
-                cc.setLevel(field.getInt("@level", 0));
-                cc.setNameColumnName(field.getString("/nameColumn"));
-                cc.setSplitName(field.getBoolean("/nameColumn/@splitName", false));
-                cc.setSplitChar(field.getString("/nameColumn/@splitChar", ","));
-                cc.setSubNameColumnName(field.getString("/subNameColumn"));
-                cc.setPartNameColumnName(field.getString("/partNameColumn"));
-                corpList.add(cc);
-            }
-            groupList.clear();
-            List<HierarchicalConfiguration> gml = myconfig.configurationsAt("/metadata/group");
-            for (HierarchicalConfiguration md : gml) {
-                GroupColumns grp = new GroupColumns();
-                grp.setRulesetName(md.getString("@metadataField"));
-                grp.setEadName(md.getString("@eadField"));
-                grp.setLevel(md.getInt("@level", 0));
-
-                List<HierarchicalConfiguration> subList = md.configurationsAt("/field");
-                for (HierarchicalConfiguration sub : subList) {
-                    MetadataColumn mc = extracted(sub);
-                    grp.addMetadataColumn(mc);
+        RecordChunkReader reader = new RecordChunkReader(config.getChunkSize(), config.getChunkWindow());
+        reader.start(chunk -> {
+            List<String> recordIds = new ArrayList<>();
+            try {
+                readRecords(rec -> {
+                    if (changed == null || changed.test(rec)) {
+                        recordIds.add(rec.getId());
+                        chunk.accept(rec);
+                    }
+                });
+                if (checkpoint != null) {
+                    checkpoint.rowsFinished(recordIds);
                 }
-
-                groupList.add(grp);
-
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        });
+        return reader;
+    }
 
-            // process title generation
-
-            lengthLimit = myconfig.getInt("/metadata/lengthLimit", 0);
-            separator = myconfig.getString("/metadata/separator", "_");
-            titleParts = Arrays.asList(myconfig.getStringArray("/metadata/title"));
-
+    private static List<String> getRecordIds(List<Record> records) {
+        List<String> ids = new ArrayList<>(records.size());
+        for (Record rec : records) {
+            ids.add(rec.getId());
         }
+        return ids;
     }
 
-    public MetadataColumn extracted(HierarchicalConfiguration field) {
-        MetadataColumn mc = new MetadataColumn();
-        mc.setRulesetName(field.getString("@metadataField"));
-        mc.setEadName(field.getString("@eadField"));
-        mc.setLevel(field.getInt("@level", 0));
-        mc.setIdentifierField(field.getBoolean("@identifier", false));
-        mc.setExcelColumnName(field.getString("@column"));
-        mc.setAuthorityColumnName(field.getString("@authorityColumn"));
-        return mc;
+    /**
+     * filter of the delta import
+     *
+     * @return a filter that accepts new or changed records, or null if all records are imported
+     */
+    private Predicate<Record> getDeltaFilter() {
+        if (!config.isDeltaImport()) {
+            return null;
+        }
+        RecordManifest manifest = getRecordManifest();
+        if (manifest == null) {
+            return null;
+        }
+        // the records of the last import are only skipped, if their process was created
+        try {
+            manifest.confirmPending(findExistingTitles(manifest.getPendingTitles()));
+            manifest.save();
+        } catch (SQLException e) {
+            log.error(e);
+        }
+        ImageFolderIndex allImageFolder = getImageFolderIndex();
+        return rec -> !manifest.isUnchanged(rec.getId(), getRecordHash(rec, allImageFolder));
     }
 
     /**
-     * This method is used to generate records based on the imported data these records will then be used later to generate the Goobi processes
+     * read the file and create the nodes in the archive, each record is passed to the consumer as soon as its row was read
      */
-    @Override
-    public List<Record> generateRecordsFromFile() { //NOSONAR
+    private void readRecords(Consumer<Record> consumer) throws IOException { //NOSONAR
         if (StringUtils.isBlank(workflowName)) {
             workflowName = form.getTemplate().getTitel();
         }
@@ -300,14 +338,14 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
             IPlugin ia = PluginLoader.getPluginByTitle(PluginType.Administration, "intranda_administration_archive_management");
             archivePlugin = (IArchiveManagementAdministrationPlugin) ia;
 
-            archivePlugin.setDatabaseName(eadFileName);
+            archivePlugin.setDatabaseName(config.getEadFileName());
 
             List<String> lst = archivePlugin.getPossibleDatabases();
-            if (lst.contains(eadFileName)) {
+            if (lst.contains(config.getEadFileName())) {
                 archivePlugin.loadSelectedDatabase();
                 archiveExists = true;
             } else {
-                archivePlugin.setDatabaseName(eadFileName);
+                archivePlugin.setDatabaseName(config.getEadFileName());
                 archivePlugin.createNewDatabase();
             }
             rootEntry = archivePlugin.getRootElement();
@@ -324,329 +362,426 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
             }
         }
 
-        // the list where the records are stored
-        List<Record> recordList = new ArrayList<>();
+        existingNodes = null;
 
-        int rowCounter = 0;
+        checkpoint = createCheckpoint();
+        if (checkpoint != null) {
+            if (config.isResume()) {
+                checkpoint.load();
+                log.info("Resume import after row {}, {} records were completed", checkpoint.getLastRow(), checkpoint.getNumberOfCompletedRecords());
+            } else {
+                checkpoint.clear();
+            }
+        }
 
         IEadEntry lastElement = rootEntry;
 
+        ImportMetrics metrics = ImportMetrics.getInstance();
+
         // open excel file
-        try (InputStream fileInputStream = new FileInputStream(file);
-                BOMInputStream in = BOMInputStream.builder().setInputStream(fileInputStream).setInclude(false).get();
-                Workbook wb = WorkbookFactory.create(in)) {
-            Sheet sheet = wb.getSheetAt(0);
-            Iterator<Row> rowIterator = sheet.rowIterator();
-
-            Row headerRow = null;
-            if (headerRowNumber != 0) {
-                while (rowCounter < headerRowNumber) {
-                    rowCounter++;
-                    headerRow = rowIterator.next();
-                }
-            }
+        try (MultiSheetReader sheets = openSheets()) {
 
-            Map<String, Integer> headerOrder = new HashMap<>();
+            int totalHierarchy = 0;
 
-            if (headerRow != null) {
-                //  read and validate the header row
-                int numberOfCells = headerRow.getLastCellNum();
-                for (int i = 0; i < numberOfCells; i++) {
-                    Cell cell = headerRow.getCell(i);
-                    if (cell != null) {
-                        String value = getCellValue(headerRow, i, wb);
-                        headerOrder.put(value, i);
-                    }
+            // the nodes up to this row were created in a previous run
+            int resumeRow = -1;
+            if (checkpoint != null && checkpoint.isRowsFinished()) {
+                // all nodes were created by a previous run, the rows are only read for the records whose processes are missing
+                resumeRow = Integer.MAX_VALUE;
+            } else if (checkpoint != null && checkpoint.getLastRow() != -1) {
+                IEadEntry lastNode = findNodeById(checkpoint.getLastNodeId());
+                if (lastNode != null) {
+                    resumeRow = checkpoint.getLastRow();
+                    totalHierarchy = checkpoint.getTotalHierarchy();
+                    lastElement = lastNode;
+                } else {
+                    log.error("Node {} of the checkpoint does not exist, the import cannot be resumed and starts with the first row",
+                            checkpoint.getLastNodeId());
                 }
             }
 
-            // go to first data row
-            while (rowCounter < startRow - headerRowNumber) {
-                rowCounter++;
-                rowIterator.next();
-            }
-
-            Integer identifierOrder = null;
-            for (MetadataColumn col : columnList) {
-                if (col.isIdentifierField()) {
-                    identifierOrder = headerOrder.get(col.getExcelColumnName());
-                }
-            }
+            // the rows of a sheet are numbered after the rows of the previous sheets, so the checkpoint refers to a unique row
+            int rowOffset = 0;
+            int sheetIndex = -1;
+            while (sheets.hasNext()) {
+                sheetIndex++;
+                int lastRowNumber = -1;
+                try (SheetRowReader rowReader = sheets.next()) {
+                    int rowCounter = 0;
+
+                    long headerStart = metrics.start();
+                    SheetRow headerRow = null;
+                    if (config.getHeaderRowNumber() != 0) {
+                        while (rowCounter < config.getHeaderRowNumber()) {
+                            rowCounter++;
+                            headerRow = rowReader.next();
+                        }
+                    }
 
-            int totalHierarchy = 0;
-            // read all lines
-            while (rowIterator.hasNext()) {
-                Row row = rowIterator.next();
-                int lastColumn = row.getLastCellNum();
-                if (lastColumn == -1) {
-                    // skip empty lines
-                    continue;
-                }
+                    Map<String, Integer> headerColumns = new HashMap<>();
 
-                int hierarchy = 0;
-                String firstColumnValue = null;
-                String secondColumnValue = null;
-                String identifierValue = null;
-                boolean createProcess = false;
-                Map<Integer, String> map = new HashMap<>();
-
-                for (int cellCounter = 0; cellCounter < lastColumn; cellCounter++) {
-                    Cell cell = row.getCell(cellCounter, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-                    if (cell == null || cell.getCellType() == CellType.BLANK) {
-                        // skip empty cell in order to find first column with content
-                        continue;
-                    }
-                    // we found content
-                    if (StringUtils.isBlank(firstColumnValue)) {
-                        firstColumnValue = cell.getStringCellValue();
-                        hierarchy = cellCounter;
-                        // check if value is bold
-                        CellStyle cs = cell.getCellStyle();
-                        Font font = ((XSSFCellStyle) cs).getFont();
-                        // if yes, create a process
-                        if (font.getBold()) {
-                            createProcess = true;
+                    if (headerRow != null) {
+                        //  read and validate the header row
+                        int numberOfCells = headerRow.getNumberOfColumns();
+                        for (int i = 0; i < numberOfCells; i++) {
+                            String value = headerRow.getValues()[i];
+                            if (value != null) {
+                                headerColumns.put(value, i);
+                            }
                         }
-                    } else if (StringUtils.isBlank(secondColumnValue)) {
-                        secondColumnValue = cell.getStringCellValue();
                     }
-                }
+                    HeaderIndex headerOrder = new HeaderIndex(headerColumns);
+                    ColumnBindingPlan plan = compileBindingPlan(headerOrder);
+                    metrics.record(Phase.HEADER_PARSE, headerStart);
+
+                    // go to first data row
+                    while (rowCounter < config.getStartRow() - config.getHeaderRowNumber()) {
+                        rowCounter++;
+                        rowReader.next();
+                    }
 
-                // skip empty rows
-                if (StringUtils.isBlank(firstColumnValue)) {
-                    continue;
-                }
+                    int identifierOrder = plan.getIdentifierColumn();
 
-                // get other columns
-                for (int cn = 0; cn < lastColumn; cn++) {
-                    String cellValue = getCellValue(row, cn, wb);
-                    if (identifierOrder != null && cn == identifierOrder.intValue()) {
-                        identifierValue = cellValue;
+                    // each sheet starts a new subtree below the root node, unless the checkpoint is within this or a later sheet
+                    if (rowOffset > resumeRow) {
+                        lastElement = rootEntry;
+                        totalHierarchy = 0;
                     }
 
-                    map.put(cn, cellValue);
-                }
+                    // read all lines of the sheet
+                    long scanStart = metrics.start();
+                    // time spent in the consumer, e.g. waiting for a full chunk queue, is not part of the row scan
+                    long consumerNanos = 0;
+                    while (rowReader.hasNext()) {
+                        ImportRowEvent rowEvent = new ImportRowEvent();
+                        rowEvent.begin();
+                        SheetRow row = rowReader.next();
+                        lastRowNumber = row.getRowNumber();
+                        int rowKey = rowOffset + row.getRowNumber();
+                        if (row.isEmpty()) {
+                            // skip empty lines
+                            continue;
+                        }
+                        int lastColumn = row.getNumberOfColumns();
 
-                // put varikable data to map
-                map.put(999, firstColumnValue);
-                map.put(998, secondColumnValue);
-
-                if (createProcess) {
-                    Record rec = new Record();
-                    rec.setData(firstColumnValue);
-                    rec.setId(identifierValue == null ? firstColumnValue : identifierValue);
-                    List<Map<?, ?>> list = new ArrayList<>();
-                    list.add(headerOrder);
-                    list.add(map);
-                    rec.setObject(list);
-                    recordList.add(rec);
-                }
-                if (hierarchy == 0) {
-                    if (archiveExists) {
-                        IEadEntry e = findElement(identifierValue == null ? firstColumnValue : identifierValue);
-                        if (e != null) {
-                            archivePlugin.setSelectedEntry(e);
-                            lastElement = e;
-                            totalHierarchy = e.getHierarchy();
+                        int hierarchy = row.getHierarchy();
+                        String firstColumnValue = row.getFirstValue();
+                        String secondColumnValue = row.getSecondValue();
+                        String identifierValue = null;
+                        boolean createProcess = row.isProcess();
+
+                        // skip empty rows
+                        if (StringUtils.isBlank(firstColumnValue)) {
                             continue;
                         }
-                    } else {
-                        // root element
-                        createEadMetadata(lastElement, firstColumnValue, secondColumnValue, createProcess, map, headerOrder);
-                    }
-                } else {
-                    IEadEntry parentNode = null;
-
-                    // if current hierarchy is > lastElement hierarchy -> current is sub element of last element
-                    if (hierarchy + totalHierarchy > lastElement.getHierarchy().intValue()) {
-                        parentNode = lastElement;
-                    } else if (hierarchy + totalHierarchy == lastElement.getHierarchy().intValue()) {
-                        // if current hierarchy == lastElement hierarchy -> current is sibling of last element, get parent element
-                        parentNode = lastElement.getParentNode();
-                    } else {
-                        // else run recursive through all parents of last element until the direct parent is found
-                        parentNode = lastElement.getParentNode();
-                        while (hierarchy + totalHierarchy <= parentNode.getHierarchy().intValue()) {
-                            parentNode = parentNode.getParentNode();
+                        metrics.rowRead();
+
+                        // get other columns
+                        RowData data = createRowData(row, headerOrder);
+                        if (identifierOrder != -1 && identifierOrder < lastColumn) {
+                            identifierValue = data.get(identifierOrder);
                         }
-                    }
 
-                    // set parent element in archivePlugin
-                    archivePlugin.setSelectedEntry(parentNode);
-                    // create new node
-                    archivePlugin.addNode();
-                    // get new node
-                    lastElement = archivePlugin.getSelectedEntry();
-
-                    // set node type
-                    if (nodeTypeColumnName != null && headerOrder.containsKey(nodeTypeColumnName)) {
-                        String nodeName = map.get(headerOrder.get(nodeTypeColumnName));
-                        for (INodeType nodeType : archivePlugin.getConfig().getConfiguredNodes()) {
-                            if (nodeType.getNodeName().equalsIgnoreCase(nodeName)) {
-                                lastElement.setNodeType(nodeType);
-                                break;
+                        if (createProcess) {
+                            Record rec = new Record();
+                            rec.setData(firstColumnValue);
+                            rec.setId(identifierValue == null ? firstColumnValue : identifierValue);
+                            rec.setObject(data);
+                            long consumerStart = System.nanoTime();
+                            consumer.accept(rec);
+                            consumerNanos += System.nanoTime() - consumerStart;
+                        }
+                        if (rowKey <= resumeRow) {
+                            continue;
+                        }
+                        IEadEntry parentNode;
+                        if (hierarchy == 0) {
+                            if (archiveExists) {
+                                IEadEntry e = findElement(identifierValue == null ? firstColumnValue : identifierValue);
+                                if (e != null) {
+                                    archivePlugin.setSelectedEntry(e);
+                                    lastElement = e;
+                                    totalHierarchy = e.getHierarchy();
+                                    if (checkpoint != null) {
+                                        checkpoint.rowCompleted(rowKey, e.getId(), totalHierarchy);
+                                    }
+                                    commitRowEvent(rowEvent, row, e, 0);
+                                    continue;
+                                }
+                            }
+                            if (sheetIndex == 0) {
+                                if (!archiveExists) {
+                                    // root element
+                                    long nodeStart = System.nanoTime();
+                                    createEadMetadata(lastElement, firstColumnValue, secondColumnValue, createProcess, data, plan);
+                                    if (checkpoint != null) {
+                                        checkpoint.rowCompleted(rowKey, lastElement.getId(), totalHierarchy);
+                                    }
+                                    commitRowEvent(rowEvent, row, lastElement, System.nanoTime() - nodeStart);
+                                }
+                                continue;
+                            }
+                            // the root row of a further sheet becomes a new node below the root element, the rows of the sheet are added below it
+                            parentNode = rootEntry;
+                        } else if (hierarchy + totalHierarchy > lastElement.getHierarchy().intValue()) {
+                            // if current hierarchy is > lastElement hierarchy -> current is sub element of last element
+                            parentNode = lastElement;
+                        } else if (hierarchy + totalHierarchy == lastElement.getHierarchy().intValue()) {
+                            // if current hierarchy == lastElement hierarchy -> current is sibling of last element, get parent element
+                            parentNode = lastElement.getParentNode();
+                        } else {
+                            // else run recursive through all parents of last element until the direct parent is found
+                            parentNode = lastElement.getParentNode();
+                            while (hierarchy + totalHierarchy <= parentNode.getHierarchy().intValue()) {
+                                parentNode = parentNode.getParentNode();
                             }
                         }
-                    } else if (createProcess) {
-                        lastElement.setNodeType(fileType);
-                    } else {
-                        lastElement.setNodeType(folderType);
-                    }
-                    // no node type found, use default value
-                    if (lastElement.getNodeType() == null) {
-                        lastElement.setNodeType(folderType);
+
+                        long nodeStart = metrics.start();
+                        // set parent element in archivePlugin
+                        archivePlugin.setSelectedEntry(parentNode);
+                        // create new node
+                        archivePlugin.addNode();
+                        // get new node
+                        lastElement = archivePlugin.getSelectedEntry();
+                        if (hierarchy == 0) {
+                            totalHierarchy = lastElement.getHierarchy();
+                        }
+
+                        // set node type
+                        if (headerOrder.contains(config.getNodeTypeColumnName())) {
+                            String nodeName = data.get(config.getNodeTypeColumnName());
+                            for (INodeType nodeType : archivePlugin.getConfig().getConfiguredNodes()) {
+                                if (nodeType.getNodeName().equalsIgnoreCase(nodeName)) {
+                                    lastElement.setNodeType(nodeType);
+                                    break;
+                                }
+                            }
+                        } else if (createProcess) {
+                            lastElement.setNodeType(fileType);
+                        } else {
+                            lastElement.setNodeType(folderType);
+                        }
+                        // no node type found, use default value
+                        if (lastElement.getNodeType() == null) {
+                            lastElement.setNodeType(folderType);
+                        }
+                        metrics.record(Phase.NODE_CREATION, nodeStart);
+                        metrics.nodeCreated();
+                        // set metadata
+                        createEadMetadata(lastElement, firstColumnValue, secondColumnValue, createProcess, data, plan);
+                        if (checkpoint != null) {
+                            checkpoint.rowCompleted(rowKey, lastElement.getId(), totalHierarchy);
+                        }
+                        commitRowEvent(rowEvent, row, lastElement, System.nanoTime() - nodeStart);
                     }
-                    // set metadata
-                    createEadMetadata(lastElement, firstColumnValue, secondColumnValue, createProcess, map, headerOrder);
+                    metrics.record(Phase.ROW_SCAN, scanStart + consumerNanos);
                 }
+                rowOffset += lastRowNumber + 1;
             }
 
-        } catch (Exception e) {
-            log.error(e);
+        } finally {
+            archivePlugin.setSelectedEntry(rootEntry);
+            if (checkpoint != null) {
+                checkpoint.close();
+            }
         }
-
-        archivePlugin.setSelectedEntry(rootEntry);
-
-        // return the list of all generated records
-        return recordList;
     }
 
-    private IEadEntry findElement(String identifier) {
-        String sql = "select id from archive_record_node WHERE archive_record_group_id = ? AND  uuid = ? ";
-        try (Connection connection = MySQLHelper.getInstance().getConnection()) {
-            QueryRunner run = new QueryRunner();
-            Integer searchResult =
-                    run.query(connection, sql.toString(), MySQLHelper.resultSetToIntegerHandler, archivePlugin.getRecordGroup().getId(), identifier);
-            for (IEadEntry entry : rootEntry.getAllNodes()) {
-                if (entry.getDatabaseId().equals(searchResult)) {
-                    return entry;
-                }
-            }
-        } catch (SQLException e) {
-            log.error(e);
+    /**
+     * commit the flight recorder event of a row, the values are only set if the event is recorded
+     *
+     * @param nodeCreation time to create the node and its metadata in nanoseconds
+     */
+    private static void commitRowEvent(ImportRowEvent event, SheetRow row, IEadEntry node, long nodeCreation) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.rowNumber = row.getRowNumber();
+            event.hierarchy = row.getHierarchy();
+            event.columns = row.getNumberOfColumns();
+            event.process = row.isProcess();
+            event.nodeId = node.getId();
+            event.nodeCreation = nodeCreation;
+            event.commit();
         }
+    }
 
-        return null;
+    /**
+     * copy the cell values of a row, missing cells are stored as empty string
+     */
+    static RowData createRowData(SheetRow row, HeaderIndex header) {
+        String[] values = new String[row.getNumberOfColumns()];
+        for (int cn = 0; cn < values.length; cn++) {
+            values[cn] = row.getValue(cn);
+        }
+        return new RowData(header, values, row.getFirstValue(), row.getSecondValue());
     }
 
-    private void createEadMetadata(IEadEntry entry, String firstValue, String secondValue, boolean createProcess, Map<Integer, String> data,
-            Map<String, Integer> headerMap) {
-        // add identifier and label
+    /**
+     * resolve the configured columns against the header row of the sheet
+     */
+    ColumnBindingPlan compileBindingPlan(HeaderIndex header) {
+        return ColumnBindingPlan.compile(config.getFirstColumn(), config.getSecondColumn(), config.getColumnList(), config.getPersonList(),
+                config.getCorpList(), config.getGroupList(), header, typeCache);
+    }
 
-        if (StringUtils.isNotBlank(firstColumn.getEadName())) {
-            String authorityData = null;
-            if (StringUtils.isNotBlank(firstColumn.getAuthorityColumnName())) {
-                authorityData = data.get(headerMap.get(firstColumn.getAuthorityColumnName()));
-            }
-            addMetadataToNode(entry, firstColumn, firstValue, authorityData);
+    /**
+     * get the metadata type of a person or corporate role. The type of the configured role is resolved in advance, roles taken from a column are
+     * resolved once for each distinct value.
+     */
+    private MetadataType getRoleType(String role, String configuredRole, MetadataType configuredType) {
+        if (role != null && role.equals(configuredRole)) {
+            return configuredType;
         }
+        return typeCache.getMetadataType(role);
+    }
 
-        if (secondColumn != null && StringUtils.isNotBlank(secondColumn.getEadName())) {
-            String authorityData = null;
-            if (StringUtils.isNotBlank(secondColumn.getAuthorityColumnName())) {
-                authorityData = data.get(headerMap.get(secondColumn.getAuthorityColumnName()));
-            }
-            addMetadataToNode(entry, secondColumn, secondValue, authorityData);
-
+    /**
+     * open the readers of the configured sheets. Without a sheet configuration only the first sheet is read.
+     */
+    private MultiSheetReader openSheets() throws IOException {
+        if (isDelimitedFile() || !config.isImportAllSheets() && config.getSheetNames().isEmpty()) {
+            return new MultiSheetReader(Collections.singletonList(0), 1, sheetIndex -> openRowReader(), null);
+        }
+        ImportMetrics metrics = ImportMetrics.getInstance();
+        if (isStreamingFile()) {
+            List<Integer> sheets = selectSheets(StreamingRowReader.getSheetNames(file));
+            return new MultiSheetReader(sheets, config.getSheetThreads(), sheetIndex -> {
+                long start = metrics.start();
+                try {
+                    return new StreamingRowReader(file, sheetIndex);
+                } finally {
+                    metrics.record(Phase.WORKBOOK_OPEN, start);
+                }
+            }, null);
+        }
+        long start = metrics.start();
+        Workbook wb = WorkbookRowReader.openWorkbook(file);
+        metrics.record(Phase.WORKBOOK_OPEN, start);
+        List<String> sheetNames = new ArrayList<>();
+        for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+            sheetNames.add(wb.getSheetName(i));
         }
+        // the usermodel is not thread safe, the sheets are read one after another
+        return new MultiSheetReader(selectSheets(sheetNames), 1, sheetIndex -> new WorkbookRowReader(wb, sheetIndex, config.isEvaluateFormulas()),
+                wb);
+    }
 
-        for (MetadataColumn col : columnList) {
-            String metadataValue = data.get(headerMap.get(col.getExcelColumnName()));
-            String authorityData = null;
-            if (StringUtils.isNotBlank(col.getAuthorityColumnName())) {
-                authorityData = data.get(headerMap.get(col.getAuthorityColumnName()));
-            }
-            addMetadataToNode(entry, col, metadataValue, authorityData);
-            if ("TitleDocMain".equals(col.getRulesetName())) {
-                entry.setLabel(metadataValue);
+    /**
+     * @param sheetNames names of all sheets of the workbook
+     * @return indices of the configured sheets, in the order of the workbook
+     */
+    private List<Integer> selectSheets(List<String> sheetNames) {
+        List<Integer> sheets = new ArrayList<>();
+        for (int i = 0; i < sheetNames.size(); i++) {
+            if (config.isImportAllSheets() || config.getSheetNames().contains(sheetNames.get(i))) {
+                sheets.add(i);
             }
         }
-        for (PersonColumn col : personList) {
-            String firstname = null;
-            String lastname = null;
-            if (col.isSplitName()) {
-                String name = data.get(headerMap.get(col.getNameColumnName()));
-                if (StringUtils.isNotBlank(name)) {
-                    if (name.contains(col.getSplitChar())) {
-                        if (col.isFirstNameIsFirst()) {
-                            firstname = name.substring(0, name.lastIndexOf(col.getSplitChar()));
-                            lastname = name.substring(name.lastIndexOf(col.getSplitChar()) + 1);
-                        } else {
-                            lastname = name.substring(0, name.lastIndexOf(col.getSplitChar()));
-                            firstname = name.substring(name.lastIndexOf(col.getSplitChar()) + 1);
-                        }
-                    } else {
-                        firstname = "";
-                        lastname = name;
-                    }
-                }
-            } else {
-                firstname = data.get(headerMap.get(col.getFirstColumnName()));
-                lastname = data.get(headerMap.get(col.getNameColumnName()));
+        for (String name : config.getSheetNames()) {
+            if (!sheetNames.contains(name)) {
+                log.error("Sheet {} does not exist in {}", name, file.getName());
             }
-            String authorityData = null;
-            if (StringUtils.isNotBlank(col.getAuthorityColumnName())) {
-                authorityData = data.get(headerMap.get(col.getAuthorityColumnName()));
+        }
+        return sheets;
+    }
+
+    /**
+     * open the configured reader for the first sheet of the import file. The streaming reader is only available for xlsx files, other formats are
+     * always read completely. The streaming reader always uses the cached formula results. Csv and tsv files are always read row by row.
+     */
+    private SheetRowReader openRowReader() throws IOException {
+        ImportMetrics metrics = ImportMetrics.getInstance();
+        long start = metrics.start();
+        try {
+            if (isDelimitedFile()) {
+                return new DelimitedRowReader(file.toPath(), Charset.forName(config.getDelimitedEncoding()),
+                        DelimitedRowReader.getSeparator(file.getName(), config.getDelimitedSeparator()), config.getHeaderRowNumber() - 1,
+                        config.getLevelColumnName(), config.getProcessColumnName());
             }
-            String role = col.getEadName();
-            // column header was configured, use value from column
-            if (data.containsKey(headerMap.get(role))) {
-                role = data.get(headerMap.get(role));
+            if (isStreamingFile()) {
+                return new StreamingRowReader(file);
             }
-            addPersonToNode(entry, col, role, firstname, lastname, authorityData);
-        }
-
-        for (CorporateColumn col : corpList) {
-            String mainName = "";
-            String subName = "";
-            String partName = "";
-            if (col.isSplitName()) {
-                String name = data.get(headerMap.get(col.getNameColumnName()));
-                if (StringUtils.isNotBlank(name)) {
-                    String[] nameParts = name.split(col.getSplitChar());
-                    mainName = nameParts[0];
-                    if (nameParts.length > 1) {
-                        subName = nameParts[1];
-                    }
-                    if (nameParts.length > 2) {
-                        partName = nameParts[2];
-                    }
+            return new WorkbookRowReader(file, config.isEvaluateFormulas());
+        } finally {
+            metrics.record(Phase.WORKBOOK_OPEN, start);
+        }
+    }
+
+    /**
+     * @return true, if the file is a csv or tsv file
+     */
+    private boolean isDelimitedFile() {
+        String filename = file.getName().toLowerCase();
+        return filename.endsWith(".csv") || filename.endsWith(".tsv");
+    }
+
+    /**
+     * @return true, if the file is read with the streaming reader
+     */
+    private boolean isStreamingFile() {
+        String filename = file.getName().toLowerCase();
+        return config.isStreamingReader() && (filename.endsWith(".xlsx") || filename.endsWith(".xlsm"));
+    }
+
+    private IEadEntry findElement(String identifier) {
+        ImportMetrics metrics = ImportMetrics.getInstance();
+        long start = metrics.start();
+        try {
+            if (existingNodes == null) {
+                try {
+                    existingNodes = ExistingNodeIndex.load(archivePlugin.getRecordGroup().getId(), rootEntry);
+                } catch (SQLException e) {
+                    log.error(e);
+                    return null;
                 }
-            } else {
-                mainName = data.get(headerMap.get(col.getNameColumnName()));
-                subName = data.get(headerMap.get(col.getSubNameColumnName()));
-                partName = data.get(headerMap.get(col.getPartNameColumnName()));
             }
+            return existingNodes.find(identifier);
+        } finally {
+            metrics.record(Phase.FIND_ELEMENT, start);
+        }
+    }
 
-            String authorityData = null;
-            if (StringUtils.isNotBlank(col.getAuthorityColumnName())) {
-                authorityData = data.get(headerMap.get(col.getAuthorityColumnName()));
-            }
-            String role = col.getEadName();
-            if (data.containsKey(headerMap.get(role))) {
-                role = data.get(headerMap.get(role));
+    void createEadMetadata(IEadEntry entry, String firstValue, String secondValue, boolean createProcess, RowData data,
+            ColumnBindingPlan plan) {
+        long start = ImportMetrics.getInstance().start();
+        EadFieldIndex fields = new EadFieldIndex(entry);
+
+        // add identifier and label
+        FieldBinding first = plan.getFirstField();
+        if (first.getEadName() != null) {
+            addMetadataToNode(fields, first, firstValue, first.getAuthorityData(data));
+        }
+
+        FieldBinding second = plan.getSecondField();
+        if (second != null && second.getEadName() != null) {
+            addMetadataToNode(fields, second, secondValue, second.getAuthorityData(data));
+        }
+
+        for (FieldBinding col : plan.getAdditionalFields()) {
+            String metadataValue = col.getValue(data);
+            addMetadataToNode(fields, col, metadataValue, col.getAuthorityData(data));
+            if (col.isTitle()) {
+                entry.setLabel(metadataValue);
             }
+        }
+        for (PersonBinding col : plan.getPersons()) {
+            String[] names = col.getNames(data);
+            addPersonToNode(fields, col.getLevel(), col.getEadRole(data), names[0], names[1], col.getAuthorityData(data));
+        }
 
-            addCorporateToNode(entry, col.getLevel(), role, mainName, subName, partName, authorityData);
+        for (CorporateBinding col : plan.getCorporates()) {
+            String[] names = col.getNames(data, "");
+            addCorporateToNode(fields, col.getLevel(), col.getEadRole(data), names[0], names[1], names[2], col.getAuthorityData(data));
         }
 
-        for (GroupColumns gmo : groupList) {
-            addGroupToNode(entry, data, headerMap, gmo);
+        for (GroupBinding gmo : plan.getGroups()) {
+            addGroupToNode(fields, data, gmo);
         }
 
         // identifierField
-        if (firstColumn.isIdentifierField()) {
-            entry.setId(firstValue);
-        } else if (secondColumn != null && secondColumn.isIdentifierField()) {
-            entry.setId(secondValue);
-        } else {
-            for (
-
-            MetadataColumn col : columnList) {
-                if (col.isIdentifierField()) {
-                    entry.setId(data.get(headerMap.get(col.getExcelColumnName())));
-                }
-            }
+        if (plan.isIdentifierConfigured()) {
+            entry.setId(getNodeId(data, plan));
         }
         if (createProcess) {
             entry.setGoobiProcessTitle(entry.getId());
@@ -654,81 +789,35 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
         if (StringUtils.isBlank(entry.getLabel())) {
             entry.setLabel(secondValue);
         }
+        ImportMetrics.getInstance().record(Phase.EAD_METADATA, start);
     }
 
-    public void addGroupToNode(IEadEntry entry, Map<Integer, String> data, Map<String, Integer> headerMap, GroupColumns gmo) {
-        switch (gmo.getLevel()) {
-            case 1:
-                for (IMetadataField field : entry.getIdentityStatementAreaList()) {
-                    if (field.getName().equals(gmo.getEadName())) {
-                        addGroupMetadata(data, headerMap, gmo, field);
-                        return;
-                    }
-
-                }
-                break;
-            case 2:
-                for (IMetadataField field : entry.getContextAreaList()) {
-                    if (field.getName().equals(gmo.getEadName())) {
-                        addGroupMetadata(data, headerMap, gmo, field);
-                        return;
-                    }
-                }
-                break;
-
-            case 3:
-                for (IMetadataField field : entry.getContentAndStructureAreaAreaList()) {
-                    if (field.getName().equals(gmo.getEadName())) {
-                        addGroupMetadata(data, headerMap, gmo, field);
-                        return;
-                    }
-                }
-                break;
-            case 4:
-                for (IMetadataField field : entry.getAccessAndUseAreaList()) {
-                    if (field.getName().equals(gmo.getEadName())) {
-                        addGroupMetadata(data, headerMap, gmo, field);
-                        return;
-                    }
-                }
-                break;
-            case 5:
-                for (IMetadataField field : entry.getAlliedMaterialsAreaList()) {
-                    if (field.getName().equals(gmo.getEadName())) {
-                        addGroupMetadata(data, headerMap, gmo, field);
-                        return;
-                    }
-                }
-
-                break;
-            case 6:
-                for (IMetadataField field : entry.getNotesAreaList()) {
-                    if (field.getName().equals(gmo.getEadName())) {
-                        addGroupMetadata(data, headerMap, gmo, field);
-                        return;
-                    }
-                }
-                break;
-            case 7:
-                for (IMetadataField field : entry.getDescriptionControlAreaList()) {
-                    if (field.getName().equals(gmo.getEadName())) {
-                        addGroupMetadata(data, headerMap, gmo, field);
-                        return;
-                    }
-                }
-                break;
-            default:
-                break;
+    /**
+     * get the value of the field that is marked as identifier
+     */
+    private String getNodeId(RowData data, ColumnBindingPlan plan) {
+        if (plan.getFirstField().getColumn().isIdentifierField()) {
+            return data.getFirstValue();
+        } else if (plan.getSecondField() != null && plan.getSecondField().getColumn().isIdentifierField()) {
+            return data.getSecondValue();
+        } else if (plan.getIdentifierColumn() != -1) {
+            return data.get(plan.getIdentifierColumn());
+        }
+        return null;
+    }
 
+    public void addGroupToNode(EadFieldIndex fields, RowData data, GroupBinding gmo) {
+        IMetadataField field = fields.getField(gmo.getLevel(), gmo.getEadName());
+        if (field != null) {
+            addGroupMetadata(fields, data, gmo, field);
         }
     }
 
-    public void addGroupMetadata(Map<Integer, String> data, Map<String, Integer> headerMap, GroupColumns gmo, IMetadataField field) {
+    public void addGroupMetadata(EadFieldIndex fields, RowData data, GroupBinding gmo, IMetadataField field) {
         // find all columns with content
-        List<MetadataColumn> filledColumns = new ArrayList<>();
-        for (MetadataColumn col : gmo.getMetadataList()) {
-            if (StringUtils.isNotBlank(col.getEadName()) && StringUtils.isNotBlank(data.get(headerMap.get(col.getExcelColumnName())))
-                    && hasSubfield(field, col.getEadName())) {
+        List<FieldBinding> filledColumns = new ArrayList<>();
+        for (FieldBinding col : gmo.getFields()) {
+            if (col.getEadName() != null && StringUtils.isNotBlank(col.getValue(data)) && fields.hasSubfield(field, col.getEadName())) {
                 filledColumns.add(col);
             }
         }
@@ -739,13 +828,10 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
 
         IMetadataGroup grp = field.createGroup();
         // find metadata field
-        for (MetadataColumn col : filledColumns) {
+        for (FieldBinding col : filledColumns) {
             // get value, check for authority data
-            String metadataValue = data.get(headerMap.get(col.getExcelColumnName()));
-            String authorityData = null;
-            if (StringUtils.isNotBlank(col.getAuthorityColumnName())) {
-                authorityData = data.get(headerMap.get(col.getAuthorityColumnName()));
-            }
+            String metadataValue = col.getValue(data);
+            String authorityData = col.getAuthorityData(data);
             for (IMetadataField subfield : grp.getFields()) {
                 if (subfield.getName().equals(col.getEadName())) {
                     createMetadataField(metadataValue, authorityData, subfield);
@@ -754,149 +840,24 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
         }
     }
 
-    private boolean hasSubfield(IMetadataField field, String name) {
-        if (field.getSubfields() == null) {
-            return false;
+    private void addCorporateToNode(EadFieldIndex fields, int level, String role, String mainName, String subName, String partName,
+            String authorityData) {
+        if (StringUtils.isBlank(mainName)) {
+            return;
         }
-        for (IMetadataField subfield : field.getSubfields()) {
-            if (name.equals(subfield.getName())) {
-                return true;
-            }
+        IMetadataField field = fields.getField(level, role);
+        if (field != null) {
+            createCorporateField(mainName, subName, partName, authorityData, field);
         }
-        return false;
     }
 
-    private void addCorporateToNode(IEadEntry entry, int level, String role, String mainName, String subName, String partName, String authorityData) {
-        if (StringUtils.isBlank(mainName)) {
+    private void addPersonToNode(EadFieldIndex fields, int level, String role, String firstname, String lastname, String authorityData) {
+        if (StringUtils.isBlank(firstname) && StringUtils.isBlank(lastname)) {
             return;
         }
-        switch (level) {
-            case 1:
-                for (IMetadataField field : entry.getIdentityStatementAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createCorporateField(mainName, subName, partName, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 2:
-                for (IMetadataField field : entry.getContextAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createCorporateField(mainName, subName, partName, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 3:
-                for (IMetadataField field : entry.getContentAndStructureAreaAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createCorporateField(mainName, subName, partName, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 4:
-                for (IMetadataField field : entry.getAccessAndUseAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createCorporateField(mainName, subName, partName, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 5:
-                for (IMetadataField field : entry.getAlliedMaterialsAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createCorporateField(mainName, subName, partName, authorityData, field);
-                        return;
-                    }
-                }
-
-                break;
-            case 6:
-                for (IMetadataField field : entry.getNotesAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createCorporateField(mainName, subName, partName, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 7:
-                for (IMetadataField field : entry.getDescriptionControlAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createCorporateField(mainName, subName, partName, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            default:
-                break;
-        }
-    }
-
-    private void addPersonToNode(IEadEntry entry, PersonColumn column, String role, String firstname, String lastname, String authorityData) {
-        if (StringUtils.isBlank(firstname) && StringUtils.isBlank(lastname)) {
-            return;
-        }
-        switch (column.getLevel()) {
-            case 1:
-                for (IMetadataField field : entry.getIdentityStatementAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createPersonField(firstname, lastname, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 2:
-                for (IMetadataField field : entry.getContextAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createPersonField(firstname, lastname, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 3:
-                for (IMetadataField field : entry.getContentAndStructureAreaAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createPersonField(firstname, lastname, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 4:
-                for (IMetadataField field : entry.getAccessAndUseAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createPersonField(firstname, lastname, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 5:
-                for (IMetadataField field : entry.getAlliedMaterialsAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createPersonField(firstname, lastname, authorityData, field);
-                        return;
-                    }
-                }
-
-                break;
-            case 6:
-                for (IMetadataField field : entry.getNotesAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createPersonField(firstname, lastname, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 7:
-                for (IMetadataField field : entry.getDescriptionControlAreaList()) {
-                    if (field.getName().equals(role)) {
-                        createPersonField(firstname, lastname, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            default:
-                break;
+        IMetadataField field = fields.getField(level, role);
+        if (field != null) {
+            createPersonField(firstname, lastname, authorityData, field);
         }
     }
 
@@ -934,71 +895,13 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
         field.setValues(existingValues);
     }
 
-    private void addMetadataToNode(IEadEntry entry, MetadataColumn column, String stringValue, String authorityData) {
+    private void addMetadataToNode(EadFieldIndex fields, FieldBinding column, String stringValue, String authorityData) {
         if (StringUtils.isBlank(stringValue)) {
             return;
         }
-
-        switch (column.getLevel()) {
-            case 1:
-                for (IMetadataField field : entry.getIdentityStatementAreaList()) {
-                    if (field.getName().equals(column.getEadName())) {
-                        createMetadataField(stringValue, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 2:
-                for (IMetadataField field : entry.getContextAreaList()) {
-                    if (field.getName().equals(column.getEadName())) {
-                        createMetadataField(stringValue, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 3:
-                for (IMetadataField field : entry.getContentAndStructureAreaAreaList()) {
-                    if (field.getName().equals(column.getEadName())) {
-                        createMetadataField(stringValue, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 4:
-                for (IMetadataField field : entry.getAccessAndUseAreaList()) {
-                    if (field.getName().equals(column.getEadName())) {
-                        createMetadataField(stringValue, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 5:
-                for (IMetadataField field : entry.getAlliedMaterialsAreaList()) {
-                    if (field.getName().equals(column.getEadName())) {
-                        createMetadataField(stringValue, authorityData, field);
-                        return;
-                    }
-                }
-
-                break;
-            case 6:
-                for (IMetadataField field : entry.getNotesAreaList()) {
-                    if (field.getName().equals(column.getEadName())) {
-                        createMetadataField(stringValue, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            case 7:
-                for (IMetadataField field : entry.getDescriptionControlAreaList()) {
-                    if (field.getName().equals(column.getEadName())) {
-                        createMetadataField(stringValue, authorityData, field);
-                        return;
-                    }
-                }
-                break;
-            default:
-                break;
+        IMetadataField field = fields.getField(column.getLevel(), column.getEadName());
+        if (field != null) {
+            createMetadataField(stringValue, authorityData, field);
         }
     }
 
@@ -1028,391 +931,680 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
             workflowName = form.getTemplate().getTitel();
         }
         readConfig();
+        loadCheckpoint();
 
-        // collect all image folder
-        Map<String, Path> allImageFolder = new HashMap<>();
-
-        Path folder = Paths.get(imageRootFolder);
-        if (StorageProvider.getInstance().isDirectory(folder)) {
-
-            try (Stream<Path> stream = Files.find(folder, 10, (p, attr) -> attr.isDirectory())) {
-                stream.forEach(p -> allImageFolder.put(p.getFileName().toString(), p));
-            } catch (IOException e) {
-                log.error(e);
+        // the METS files of a chunked import were already written while the file was read
+        List<Record> newRecords = new ArrayList<>(records.size());
+        for (Record rec : records) {
+            if (!(rec instanceof PreparedRecord)) {
+                newRecords.add(rec);
             }
         }
+        List<ImportObject> created = newRecords.isEmpty() ? Collections.emptyList() : generateFilesOfPart(newRecords);
+        List<ImportObject> answer = new ArrayList<>(records.size());
+        Iterator<ImportObject> createdObjects = created.iterator();
+        for (Record rec : records) {
+            answer.add(rec instanceof PreparedRecord ? ((PreparedRecord) rec).getImportObject() : createdObjects.next());
+        }
+        // the checkpoint is removed once the processes of all records of the file were created, GoobiScript creates them one at a time
+        if (checkpoint != null) {
+            checkpoint.finishIfComplete();
+        }
+        return answer;
+    }
 
-        List<ImportObject> answer = new ArrayList<>();
+    /**
+     * create the processes of some of the records, the checkpoint is kept for the remaining ones
+     */
+    private List<ImportObject> generateFilesOfPart(List<Record> records) {
+        if (StringUtils.isBlank(workflowName)) {
+            workflowName = form.getTemplate().getTitel();
+        }
+        readConfig();
 
-        for (Record rec : records) {
-            Map<String, Integer> headerMap = getHeaderOrder(rec);
-            Map<Integer, String> data = getRowMap(rec);
-            String firstCol = data.get(999);
-            String secondCol = data.get(998);
-
-            // processTitleRule
-
-            ProcessTitleGenerator titleGenerator = new ProcessTitleGenerator();
-            titleGenerator.setSeparator(separator);
-            titleGenerator.setBodyTokenLengthLimit(lengthLimit);
-
-            for (String comp : titleParts) {
-                if (comp.startsWith("'") && comp.endsWith("'")) {
-                    titleGenerator.addToken(comp.substring(1, comp.length() - 1), ManipulationType.NORMAL);
-                } else if ("first".equals(comp)) {
-                    titleGenerator.addToken(firstCol, ManipulationType.NORMAL);
-                } else if ("second".equals(comp)) {
-                    titleGenerator.addToken(secondCol, ManipulationType.NORMAL);
-                } else {
-                    String s = data.get(headerMap.get(comp));
-                    titleGenerator.addToken(s, ManipulationType.NORMAL);
-                }
-            }
+        // collect all image folder
+        ImageFolderIndex allImageFolder = getImageFolderIndex();
 
-            String identifier = titleGenerator.generateTitle();
+        loadCheckpoint();
 
-            Path currentImageFolder = allImageFolder.get(rec.getId());
-            List<Path> filesToImport = null;
-            if (currentImageFolder != null) {
-                if (importAllFiles) {
-                    filesToImport = StorageProvider.getInstance().listFiles(currentImageFolder.toString());
-                } else {
-                    filesToImport = StorageProvider.getInstance().listFiles(currentImageFolder.toString(), fileFilter);
-                }
+        // the form is missing, if the plugin is used outside of the mass import, e.g. by the benchmarks
+        List<String> digitalCollections = form == null ? Collections.emptyList() : form.getDigitalCollections();
+
+        // the plan is compiled once for each sheet
+        Map<HeaderIndex, ColumnBindingPlan> plans = new IdentityHashMap<>();
+        for (Record rec : records) {
+            plans.computeIfAbsent(getRowData(rec).getHeader(), this::compileBindingPlan);
+        }
+
+        // stop before any file is written, if the configuration uses unknown types
+        Set<String> unknownTypes = resolveRulesetTypes(plans.values(), digitalCollections);
+        if (!unknownTypes.isEmpty()) {
+            String message = "Unknown ruleset types: " + String.join(", ", unknownTypes);
+            log.error(message);
+            List<ImportObject> answer = new ArrayList<>(records.size());
+            for (Record rec : records) {
+                ImportObject io = new ImportObject();
+                io.setProcessTitle(rec.getId());
+                io.setImportReturnValue(ImportReturnValue.InvalidData);
+                io.setErrorMessage(message);
+                answer.add(io);
             }
+            return answer;
+        }
 
-            String metsFileName = getImportFolder() + File.separator + identifier + ".xml";
+        // generate all titles first and reject conflicting records before any file is written
+        List<String> titles = new ArrayList<>(records.size());
+        for (Record rec : records) {
+            titles.add(generateProcessTitle(getRowData(rec)));
+        }
+        // remember the imported records for the next delta import, the processes are created after this method
+        RecordManifest manifest = getRecordManifest();
+        ImportObject[] rejected = checkProcessTitles(records, titles, config.isDeltaImport() ? manifest : null);
 
-            Fileformat fileformat = null;
-            DocStruct logical = null;
+        List<ImportObject> answer = new ArrayList<>(records.size());
 
-            DocStruct physical = null;
-            try {
-                fileformat = new MetsMods(prefs);
-                DigitalDocument digDoc = new DigitalDocument();
-                fileformat.setDigitalDocument(digDoc);
-                logical = digDoc.createDocStruct(prefs.getDocStrctTypeByName(docType));
-                physical = digDoc.createDocStruct(prefs.getDocStrctTypeByName("BoundBook"));
-                digDoc.setLogicalDocStruct(logical);
-                digDoc.setPhysicalDocStruct(physical);
-            } catch (UGHException e) {
-                log.error(e);
-            }
+        // images are copied in the background while the next records are created
+        ImageCopyPipeline copyPipeline =
+                new ImageCopyPipeline(new ImageTransfer(config.getTransferMode()), config.getCopyThreads(), config.getCopyVolumeLimits());
+
+        if (config.getProcessThreads() <= 1 || records.size() <= 1) {
             try {
-                Metadata imagePath = new Metadata(prefs.getMetadataTypeByName("pathimagefiles"));
-                imagePath.setValue("./images/");
-                physical.addMetadata(imagePath);
-            } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
-                log.error(e);
+                for (int i = 0; i < records.size(); i++) {
+                    if (rejected[i] != null) {
+                        answer.add(rejected[i]);
+                        continue;
+                    }
+                    Record rec = records.get(i);
+                    ColumnBindingPlan plan = plans.get(getRowData(rec).getHeader());
+                    try {
+                        answer.add(createImportObject(rec, titles.get(i), plan, allImageFolder, digitalCollections, copyPipeline));
+                    } catch (RuntimeException e) {
+                        // like in the parallel mode, only this record fails
+                        answer.add(createFailedObject(rec, e));
+                    }
+                }
+            } finally {
+                copyPipeline.finish();
             }
-            try {
-                Metadata idMetadata = new Metadata(prefs.getMetadataTypeByName(firstColumn.getRulesetName()));
-                idMetadata.setValue(firstCol);
-                String authorityData = null;
-                if (StringUtils.isNotBlank(firstColumn.getAuthorityColumnName())) {
-                    authorityData = data.get(headerMap.get(firstColumn.getAuthorityColumnName()));
+        } else {
+            createImportObjectsInParallel(records, titles, rejected, plans, allImageFolder, digitalCollections, copyPipeline, answer);
+        }
+
+        if (checkpoint != null) {
+            // the records of existing processes are finished as well
+            for (int i = 0; i < records.size(); i++) {
+                if (rejected[i] != null && rejected[i].getImportReturnValue() == ImportReturnValue.DataAllreadyExists) {
+                    checkpoint.recordCompleted(records.get(i).getId());
                 }
+            }
+            checkpoint.flush();
+        }
 
-                if (StringUtils.isNotBlank(authorityData)) {
-                    idMetadata.setAuthorityFile("-", "-", authorityData);
+        if (manifest != null) {
+            for (int i = 0; i < answer.size(); i++) {
+                // a changed record of an existing process is confirmed by the next import, so it is only reported once
+                ImportReturnValue result = answer.get(i).getImportReturnValue();
+                if (result == ImportReturnValue.ExportFinished || result == ImportReturnValue.DataAllreadyExists) {
+                    Record rec = records.get(i);
+                    manifest.putPending(rec.getId(), getRecordHash(rec, allImageFolder), answer.get(i).getProcessTitle());
                 }
-                idMetadata.setAuthorityValue(authorityData);
-                logical.addMetadata(idMetadata);
-            } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
-                log.error(e);
             }
+            manifest.save();
+        }
 
-            if (secondColumn != null && StringUtils.isNotBlank(secondCol)) {
-                try {
-                    String authorityData = null;
-                    if (StringUtils.isNotBlank(secondColumn.getAuthorityColumnName())) {
-                        authorityData = data.get(headerMap.get(secondColumn.getAuthorityColumnName()));
-                    }
-                    Metadata desc = new Metadata(prefs.getMetadataTypeByName(secondColumn.getRulesetName()));
-                    desc.setAuthorityValue(authorityData);
-                    desc.setValue(secondCol);
-                    if (StringUtils.isNotBlank(authorityData)) {
-                        desc.setAuthorityFile("-", "-", authorityData);
-                    }
+        return answer;
+    }
 
-                    logical.addMetadata(desc);
-                } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
-                    log.error(e);
+    /**
+     * resolve the types that are used for every record, this must be done before any worker is started
+     *
+     * @param plans the plans of all sheets
+     * @param digitalCollections the selected collections
+     * @return the names that are not defined in the ruleset, an empty set if all types were found
+     */
+    Set<String> resolveRulesetTypes(Collection<ColumnBindingPlan> plans, List<String> digitalCollections) {
+        RulesetTypeCache types = typeCache;
+        logicalType = types.getDocStructType(config.getDocType());
+        physicalType = types.getDocStructType("BoundBook");
+        imagePathType = types.getMetadataType("pathimagefiles");
+        nodeIdType = types.getMetadataType("NodeId");
+        collectionType = types.getMetadataType("singleDigCollection");
+
+        Set<String> unknownTypes = new LinkedHashSet<>();
+        if (logicalType == null) {
+            unknownTypes.add(config.getDocType());
+        }
+        if (physicalType == null) {
+            unknownTypes.add("BoundBook");
+        }
+        if (imagePathType == null) {
+            unknownTypes.add("pathimagefiles");
+        }
+        if (collectionType == null && !digitalCollections.isEmpty()) {
+            unknownTypes.add("singleDigCollection");
+        }
+        for (ColumnBindingPlan plan : plans) {
+            unknownTypes.addAll(plan.getUnknownTypes());
+        }
+        return unknownTypes;
+    }
+
+    /**
+     * Find the records whose process title is already used by an existing process or by an earlier record of the list. All titles are checked with
+     * a few database queries.
+     *
+     * In a delta import, a changed record whose process was created by a previous import is reported as existing data instead, also if the titles
+     * are not checked otherwise. Goobi cannot create its process again, so the record is skipped.
+     *
+     * @param records the records
+     * @param titles the process titles of the records
+     * @param manifest the manifest of the delta import, null if all records are imported
+     * @return the rejected import objects, null for the records that can be imported
+     */
+    private ImportObject[] checkProcessTitles(List<Record> records, List<String> titles, RecordManifest manifest) {
+        ImportObject[] rejected = new ImportObject[records.size()];
+        List<String> checkedTitles = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            if (config.isCheckProcessTitles() || manifest != null && manifest.contains(records.get(i).getId())) {
+                checkedTitles.add(titles.get(i));
+            }
+        }
+        if (checkedTitles.isEmpty()) {
+            return rejected;
+        }
+        if (config.isCheckProcessTitles()) {
+            // titles are compared case-insensitively, like in the database. The titles of the previous chunks are kept in a chunked import
+            Map<String, String> recordsByTitle = usedTitles == null ? new HashMap<>() : usedTitles;
+            for (int i = 0; i < records.size(); i++) {
+                String otherRecord = recordsByTitle.putIfAbsent(titles.get(i).toLowerCase(), records.get(i).getId());
+                if (otherRecord != null) {
+                    rejected[i] = new ImportObject();
+                    rejected[i].setProcessTitle(titles.get(i));
+                    rejected[i].setImportReturnValue(ImportReturnValue.InvalidData);
+                    rejected[i].setErrorMessage("Process title " + titles.get(i) + " is already used by record " + otherRecord);
                 }
             }
+        }
 
-            // additional metadata
-            for (MetadataColumn col : columnList) {
-                if (StringUtils.isNotBlank(col.getRulesetName())) {
-                    String value = data.get(headerMap.get(col.getExcelColumnName()));
-                    if (StringUtils.isNotBlank(value)) {
-                        String authorityData = null;
-                        if (StringUtils.isNotBlank(col.getAuthorityColumnName())) {
-                            authorityData = data.get(headerMap.get(col.getAuthorityColumnName()));
-                        }
-                        try {
-                            Metadata meta = new Metadata(prefs.getMetadataTypeByName(col.getRulesetName()));
-                            if (StringUtils.isNotBlank(authorityData)) {
-                                meta.setAuthorityFile("-", "-", authorityData);
-                            }
-                            meta.setValue(value);
-                            logical.addMetadata(meta);
-                        } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
-                            log.error(e);
-                        }
-                    }
-                }
+        Set<String> existingTitles;
+        try {
+            existingTitles = findExistingTitles(checkedTitles);
+        } catch (SQLException e) {
+            log.error(e);
+            return rejected;
+        }
+        for (int i = 0; i < records.size(); i++) {
+            String id = records.get(i).getId();
+            if (rejected[i] != null || !existingTitles.contains(titles.get(i))) {
+                continue;
             }
-            for (PersonColumn col : personList) {
-                String firstname = null;
-                String lastname = null;
-                if (col.isSplitName()) {
-                    String name = data.get(headerMap.get(col.getNameColumnName()));
-                    if (StringUtils.isNotBlank(name)) {
-                        if (name.contains(col.getSplitChar())) {
-                            if (col.isFirstNameIsFirst()) {
-                                firstname = name.substring(0, name.lastIndexOf(col.getSplitChar()));
-                                lastname = name.substring(name.lastIndexOf(col.getSplitChar()) + 1);
-                            } else {
-                                lastname = name.substring(0, name.lastIndexOf(col.getSplitChar()));
-                                firstname = name.substring(name.lastIndexOf(col.getSplitChar()) + 1);
-                            }
-                        } else {
-                            firstname = "";
-                            lastname = name;
-                        }
-                    }
-                } else {
-                    firstname = data.get(headerMap.get(col.getFirstColumnName()));
-                    lastname = data.get(headerMap.get(col.getNameColumnName()));
-                }
+            if (manifest != null && manifest.contains(id)) {
+                rejected[i] = new ImportObject();
+                rejected[i].setProcessTitle(titles.get(i));
+                rejected[i].setImportReturnValue(ImportReturnValue.DataAllreadyExists);
+                rejected[i].setErrorMessage(
+                        "Record " + id + " was changed, but its process " + titles.get(i) + " already exists and is not created again");
+            } else if (config.isCheckProcessTitles()) {
+                rejected[i] = new ImportObject();
+                rejected[i].setProcessTitle(titles.get(i));
+                rejected[i].setImportReturnValue(ImportReturnValue.InvalidData);
+                rejected[i].setErrorMessage("A process with the title " + titles.get(i) + " already exists");
+            }
+        }
+        return rejected;
+    }
 
-                String authorityData = null;
-                if (StringUtils.isNotBlank(col.getAuthorityColumnName())) {
-                    authorityData = data.get(headerMap.get(col.getAuthorityColumnName()));
+    /**
+     * find the titles that are used by existing processes
+     */
+    private Set<String> findExistingTitles(Collection<String> titles) throws SQLException {
+        if (titleQuery == null) {
+            return ExistingProcessTitles.find(titles);
+        }
+        return ExistingProcessTitles.find(titles, titleQuery);
+    }
+
+    /**
+     * records are independent from each other, create them in parallel and keep the order of the list
+     */
+    private void createImportObjectsInParallel(List<Record> records, List<String> titles, ImportObject[] rejected,
+            Map<HeaderIndex, ColumnBindingPlan> plans, ImageFolderIndex allImageFolder, List<String> digitalCollections,
+            ImageCopyPipeline copyPipeline, List<ImportObject> answer) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(config.getProcessThreads(), records.size()));
+        try {
+            List<Future<ImportObject>> futures = new ArrayList<>(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                if (rejected[i] != null) {
+                    futures.add(null);
+                    continue;
                 }
-                String role = col.getRulesetName();
-                // column header was configured, use value from column
-                if (data.containsKey(headerMap.get(role))) {
-                    role = data.get(headerMap.get(role));
+                Record rec = records.get(i);
+                String title = titles.get(i);
+                ColumnBindingPlan plan = plans.get(getRowData(rec).getHeader());
+                futures.add(executor.submit(() -> createImportObject(rec, title, plan, allImageFolder, digitalCollections, copyPipeline)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                if (rejected[i] != null) {
+                    answer.add(rejected[i]);
+                    continue;
                 }
                 try {
-                    Person p = new Person(prefs.getMetadataTypeByName(role));
-                    p.setFirstname(firstname);
-                    p.setLastname(lastname);
-                    p.setAuthorityFile("-", "-", authorityData);
-                    logical.addPerson(p);
-                } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
-                    log.error(e);
+                    answer.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    answer.add(createFailedObject(records.get(i), e.getCause()));
                 }
+            }
+        } catch (InterruptedException e) {
+            log.error(e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            copyPipeline.finish();
+        }
+    }
+
+    /**
+     * report an unexpected error during the creation of a record
+     */
+    private ImportObject createFailedObject(Record rec, Throwable cause) {
+        log.error(cause);
+        ImportObject io = new ImportObject();
+        io.setProcessTitle(rec.getId());
+        io.setImportReturnValue(ImportReturnValue.WriteError);
+        io.setErrorMessage(cause.getMessage());
+        return io;
+    }
+
+    /**
+     * get the manifest with the hashes of the imported records of the current archive, null if no import folder is set
+     */
+    private RecordManifest getRecordManifest() {
+        if (StringUtils.isBlank(getImportFolder())) {
+            return null;
+        }
+        return RecordManifest.load(Paths.get(getImportFolder(), "crown_manifest_" + getArchiveKey() + ".txt"));
+    }
 
+    /**
+     * load the checkpoint, if the records are created by a different instance than the one that read the file
+     */
+    private void loadCheckpoint() {
+        if (checkpoint == null) {
+            checkpoint = createCheckpoint();
+            if (checkpoint != null) {
+                checkpoint.load();
             }
-            for (CorporateColumn col : corpList) {
-                String mainName = null;
-                String subName = null;
-                String partName = null;
-                if (col.isSplitName()) {
-                    String name = data.get(headerMap.get(col.getNameColumnName()));
-                    if (StringUtils.isNotBlank(name)) {
-                        String[] nameParts = name.split(col.getSplitChar());
-                        mainName = nameParts[0];
-                        if (nameParts.length > 1) {
-                            subName = nameParts[1];
-                        }
-                        if (nameParts.length > 2) {
-                            partName = nameParts[2];
-                        }
-                    }
-                } else {
-                    mainName = data.get(headerMap.get(col.getNameColumnName()));
-                    subName = data.get(headerMap.get(col.getSubNameColumnName()));
-                    partName = data.get(headerMap.get(col.getPartNameColumnName()));
-                }
+        }
+    }
 
-                String authorityData = null;
-                if (StringUtils.isNotBlank(col.getAuthorityColumnName())) {
-                    authorityData = data.get(headerMap.get(col.getAuthorityColumnName()));
-                }
-                String role = col.getRulesetName();
-                if (data.containsKey(headerMap.get(role))) {
-                    role = data.get(headerMap.get(role));
-                }
-                try {
-                    Corporate c = new Corporate(prefs.getMetadataTypeByName(role));
-                    c.setMainName(mainName);
-                    if (StringUtils.isNotBlank(subName)) {
-                        c.addSubName(new NamePart("subname", subName));
-                    }
-                    c.setPartName(partName);
-                    c.setAuthorityFile("-", "-", authorityData);
-                    logical.addCorporate(c);
-                } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
-                    log.error(e);
-                }
+    /**
+     * create the checkpoint of the current archive, null if no checkpoints are configured or no import folder is set
+     */
+    private ImportCheckpoint createCheckpoint() {
+        if (config.getCheckpointInterval() <= 0 || StringUtils.isBlank(getImportFolder())) {
+            return null;
+        }
+        return new ImportCheckpoint(Paths.get(getImportFolder()), "crown_checkpoint_" + getArchiveKey(), config.getCheckpointInterval());
+    }
+
+    /**
+     * short key of the current archive, used for the names of the files in the import folder
+     */
+    private String getArchiveKey() {
+        String name = StringUtils.isBlank(config.getEadFileName()) ? workflowName : config.getEadFileName();
+        return Integer.toHexString(name.hashCode());
+    }
 
+    /**
+     * find a node of the archive by its id
+     *
+     * @param id node id
+     * @return the node or null, if the id is null or no node with this id exists
+     */
+    private IEadEntry findNodeById(String id) {
+        if (id == null) {
+            return null;
+        }
+        for (IEadEntry entry : rootEntry.getAllNodes()) {
+            if (id.equals(entry.getId())) {
+                return entry;
             }
+        }
+        return null;
+    }
 
-            for (GroupColumns gmo : groupList) {
-                // create group, if configured
-                if (StringUtils.isNotBlank(gmo.getRulesetName())) {
-                    try {
-                        MetadataGroup group = new MetadataGroup(prefs.getMetadataGroupTypeByName(gmo.getRulesetName()));
-                        if (group != null) {
-                            // add metadata to group, if value exists
-                            for (MetadataColumn col : gmo.getMetadataList()) {
-                                if (StringUtils.isNotBlank(col.getRulesetName())) {
-                                    String value = data.get(headerMap.get(col.getExcelColumnName()));
-                                    if (StringUtils.isNotBlank(value)) {
-                                        String authorityData = null;
-                                        if (StringUtils.isNotBlank(col.getAuthorityColumnName())) {
-                                            authorityData = data.get(headerMap.get(col.getAuthorityColumnName()));
-                                        }
-                                        try {
-                                            Metadata meta = new Metadata(prefs.getMetadataTypeByName(col.getRulesetName()));
-                                            meta.setAuthorityValue(authorityData);
-                                            meta.setValue(value);
-                                            if (StringUtils.isNotBlank(authorityData)) {
-                                                meta.setAuthorityFile("-", "-", authorityData);
-                                            }
-                                            group.addMetadata(meta);
-                                        } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
-                                            log.error(e);
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                        // only add group to docstruct, if it is not empty
-                        boolean groupHasMetadata = false;
-                        for (Metadata meta : group.getMetadataList()) {
-                            if (StringUtils.isNotBlank(meta.getValue())) {
-                                groupHasMetadata = true;
-                            }
-                        }
-                        if (groupHasMetadata) {
-                            logical.addMetadataGroup(group);
-                        }
+    /**
+     * calculate the hash of the cell values and the images of a record
+     */
+    private String getRecordHash(Record rec, ImageFolderIndex allImageFolder) {
+        Path imageFolder = allImageFolder.getFolder(rec.getId());
+        List<Path> images = null;
+        if (imageFolder != null) {
+            images = allImageFolder.listFiles(imageFolder, config.isImportAllFiles() ? null : fileFilter);
+        }
+        return RecordManifest.computeHash(getRowData(rec), images, config.getConfigurationModified());
+    }
 
-                    } catch (UGHException e) {
-                        log.error(e);
-                    }
+    /**
+     * get the catalogue of all image folders. The catalogue is stored in the import folder and only changed directories are read again.
+     */
+    private ImageFolderIndex getImageFolderIndex() {
+        long start = ImportMetrics.getInstance().start();
+        Path folder = Paths.get(config.getImageRootFolder());
+        Path indexFile = null;
+        if (StringUtils.isNotBlank(getImportFolder())) {
+            indexFile = Paths.get(getImportFolder(), "crown_image_folder_" + Integer.toHexString(folder.toAbsolutePath().toString().hashCode()) + ".idx");
+        }
+        ImageFolderIndex index = ImageFolderIndex.getIndex(folder, indexFile);
+        ImportMetrics.getInstance().record(Phase.IMAGE_FOLDER_SCAN, start);
+        return index;
+    }
+
+    /**
+     * Create the mets file for a single record and pass the images to the copy pipeline. The method is called in parallel for different records,
+     * the shared ruleset must only be read.
+     */
+    private ImportObject createImportObject(Record rec, String identifier, ColumnBindingPlan plan, ImageFolderIndex allImageFolder,
+            List<String> digitalCollections, ImageCopyPipeline copyPipeline) {
+        ImportRecordEvent event = new ImportRecordEvent();
+        event.begin();
+        ImportObject io = createImportObject(rec, identifier, plan, allImageFolder, digitalCollections, copyPipeline, event);
+        event.end();
+        if (event.shouldCommit()) {
+            event.recordId = rec.getId();
+            event.processTitle = io.getProcessTitle();
+            event.result = String.valueOf(io.getImportReturnValue());
+            event.commit();
+        }
+        return io;
+    }
+
+    /**
+     * generate the process title of a record from the configured title parts
+     */
+    String generateProcessTitle(RowData data) {
+        ProcessTitleGenerator titleGenerator = new ProcessTitleGenerator();
+        titleGenerator.setSeparator(config.getSeparator());
+        titleGenerator.setBodyTokenLengthLimit(config.getLengthLimit());
+
+        for (String comp : config.getTitleParts()) {
+            if (comp.startsWith("'") && comp.endsWith("'")) {
+                titleGenerator.addToken(comp.substring(1, comp.length() - 1), ManipulationType.NORMAL);
+            } else if ("first".equals(comp)) {
+                titleGenerator.addToken(data.getFirstValue(), ManipulationType.NORMAL);
+            } else if ("second".equals(comp)) {
+                titleGenerator.addToken(data.getSecondValue(), ManipulationType.NORMAL);
+            } else {
+                String s = data.get(comp);
+                titleGenerator.addToken(s, ManipulationType.NORMAL);
+            }
+        }
+
+        return titleGenerator.generateTitle();
+    }
+
+    private ImportObject createImportObject(Record rec, String identifier, ColumnBindingPlan plan, ImageFolderIndex allImageFolder,
+            List<String> digitalCollections, ImageCopyPipeline copyPipeline, ImportRecordEvent event) {
+        RowData data = getRowData(rec);
+
+        Path currentImageFolder = allImageFolder.getFolder(rec.getId());
+        List<Path> filesToImport = null;
+        if (currentImageFolder != null) {
+            filesToImport = allImageFolder.listFiles(currentImageFolder, config.isImportAllFiles() ? null : fileFilter);
+        }
+
+        String metsFileName = getImportFolder() + File.separator + identifier + ".xml";
+
+        // the METS file was written in a previous run of this import
+        boolean completed = checkpoint != null && checkpoint.isCompleted(rec.getId());
+        if (completed && !Files.exists(Paths.get(metsFileName))) {
+            // the process was created from the existing file
+            ImportObject io = new ImportObject();
+            io.setProcessTitle(identifier);
+            io.setImportReturnValue(ImportReturnValue.InvalidData);
+            io.setErrorMessage("Process " + identifier + " was created in a previous run of the import");
+            return io;
+        }
+        if (!completed) {
+            ImportMetrics metrics = ImportMetrics.getInstance();
+            try {
+                long buildStart = metrics.start();
+                Fileformat fileformat = createMetsFile(data, plan, digitalCollections);
+                metrics.record(Phase.METS_BUILD, buildStart);
+                long writeStart = metrics.start();
+                event.metsBuild = writeStart - buildStart;
+                if (config.isStreamMetsWriter()) {
+                    MetsStreamWriter.write(fileformat.getDigitalDocument(), Paths.get(metsFileName));
+                } else {
+                    fileformat.write(metsFileName);
                 }
+                metrics.record(Phase.METS_WRITE, writeStart);
+                event.metsWrite = System.nanoTime() - writeStart;
+                metrics.metsFileWritten();
+            } catch (UGHException | IOException | XMLStreamException e) {
+                log.error(e);
+                ImportObject io = new ImportObject();
+                io.setProcessTitle(identifier);
+                io.setImportReturnValue(ImportReturnValue.WriteError);
+                io.setErrorMessage("Cannot write METS file " + metsFileName + ": " + e.getMessage());
+                return io;
+            }
+            if (checkpoint != null) {
+                checkpoint.recordCompleted(rec.getId());
             }
+        }
 
-            String nodeId = null;
-            if (firstColumn.isIdentifierField()) {
-                nodeId = firstCol;
-            } else if (secondColumn != null && secondColumn.isIdentifierField()) {
-                nodeId = secondCol;
-            } else {
-                for (MetadataColumn col : columnList) {
-                    if (col.isIdentifierField()) {
-                        nodeId = data.get(headerMap.get(col.getExcelColumnName()));
+        // create process data
+        ImportObject io = new ImportObject();
+        io.setProcessTitle(identifier);
+        io.setMetsFilename(metsFileName);
+
+        io.setImportReturnValue(ImportReturnValue.ExportFinished);
+        ImportMetrics.getInstance().recordCreated();
+
+        // copy images
+        if (filesToImport != null) {
+            Path imageBasePath = Paths.get(metsFileName.replace(".xml", ""), "images", identifier + "_media");
+            try {
+                StorageProvider.getInstance().createDirectories(imageBasePath);
+            } catch (IOException e) {
+                log.error(e);
+                io.setImportReturnValue(ImportReturnValue.WriteError);
+                io.setErrorMessage("Cannot create image folder " + imageBasePath + ": " + e.getMessage());
+                return io;
+            }
+            // use the preferred derivative, if more than one version of an image exists
+            List<Path> selectedFiles = config.isImportAllFiles() ? filesToImport : config.getDerivativeSelection().select(filesToImport);
+            copyPipeline.copy(io, selectedFiles, imageBasePath);
+            event.images = selectedFiles.size();
+            if (event.isEnabled()) {
+                // the sizes are only read while the event is recorded
+                for (Path image : selectedFiles) {
+                    try {
+                        event.imageBytes += Files.size(image);
+                    } catch (IOException e) {
+                        // the copy reports the missing file
                     }
                 }
             }
+        }
 
-            MetadataType eadIdType = prefs.getMetadataTypeByName("NodeId");
-            if (eadIdType != null) {
-                try {
-                    Metadata eadId = new Metadata(eadIdType);
-                    eadId.setValue(nodeId);
-                    logical.addMetadata(eadId);
-                } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
-                    log.error(e);
+        return io;
+    }
+
+    /**
+     * create the METS document of a record: a logical element with the configured metadata and a physical element with the image path
+     *
+     * @throws UGHException if the document or its structure elements cannot be created
+     */
+    Fileformat createMetsFile(RowData data, ColumnBindingPlan plan, List<String> digitalCollections) throws UGHException {
+        String firstCol = data.getFirstValue();
+        String secondCol = data.getSecondValue();
+
+        Fileformat fileformat = new MetsMods(prefs);
+        DigitalDocument digDoc = new DigitalDocument();
+        fileformat.setDigitalDocument(digDoc);
+        DocStruct logical = digDoc.createDocStruct(logicalType);
+        DocStruct physical = digDoc.createDocStruct(physicalType);
+        digDoc.setLogicalDocStruct(logical);
+        digDoc.setPhysicalDocStruct(physical);
+        try {
+            Metadata imagePath = new Metadata(imagePathType);
+            imagePath.setValue("./images/");
+            physical.addMetadata(imagePath);
+        } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
+            log.error(e);
+        }
+        try {
+            FieldBinding first = plan.getFirstField();
+            Metadata idMetadata = new Metadata(first.getMetadataType());
+            idMetadata.setValue(firstCol);
+            String authorityData = first.getAuthorityData(data);
+
+            if (StringUtils.isNotBlank(authorityData)) {
+                idMetadata.setAuthorityFile("-", "-", authorityData);
+            }
+            idMetadata.setAuthorityValue(authorityData);
+            logical.addMetadata(idMetadata);
+        } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
+            log.error(e);
+        }
+
+        FieldBinding second = plan.getSecondField();
+        if (second != null && StringUtils.isNotBlank(secondCol)) {
+            try {
+                String authorityData = second.getAuthorityData(data);
+                Metadata desc = new Metadata(second.getMetadataType());
+                desc.setAuthorityValue(authorityData);
+                desc.setValue(secondCol);
+                if (StringUtils.isNotBlank(authorityData)) {
+                    desc.setAuthorityFile("-", "-", authorityData);
                 }
+
+                logical.addMetadata(desc);
+            } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
+                log.error(e);
             }
+        }
 
-            // add selected
-            for (String colItem : form.getDigitalCollections()) {
-                try {
-                    Metadata mdColl = new Metadata(prefs.getMetadataTypeByName("singleDigCollection"));
-                    mdColl.setValue(colItem);
-                    logical.addMetadata(mdColl);
-                } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
-                    log.error(e);
+        // additional metadata
+        for (FieldBinding col : plan.getAdditionalFields()) {
+            if (col.getRulesetName() != null) {
+                String value = col.getValue(data);
+                if (StringUtils.isNotBlank(value)) {
+                    String authorityData = col.getAuthorityData(data);
+                    try {
+                        Metadata meta = new Metadata(col.getMetadataType());
+                        if (StringUtils.isNotBlank(authorityData)) {
+                            meta.setAuthorityFile("-", "-", authorityData);
+                        }
+                        meta.setValue(value);
+                        logical.addMetadata(meta);
+                    } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
+                        log.error(e);
+                    }
                 }
             }
+        }
+        for (PersonBinding col : plan.getPersons()) {
+            String[] names = col.getNames(data);
+            String authorityData = col.getAuthorityData(data);
+            String role = col.getMetsRole(data);
             try {
-                fileformat.write(metsFileName);
-            } catch (PreferencesException | WriteException e) {
+                Person p = new Person(getRoleType(role, col.getRulesetName(), col.getMetadataType()));
+                p.setFirstname(names[0]);
+                p.setLastname(names[1]);
+                p.setAuthorityFile("-", "-", authorityData);
+                logical.addPerson(p);
+            } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
                 log.error(e);
             }
 
-            // create process data
-            ImportObject io = new ImportObject();
-            io.setProcessTitle(identifier);
-            io.setMetsFilename(metsFileName);
-
-            // copy images
-            if (filesToImport != null) {
-                Path imageBasePath = Paths.get(metsFileName.replace(".xml", ""), "images", identifier + "_media");
-                try {
-                    StorageProvider.getInstance().createDirectories(imageBasePath);
-
-                    if (importAllFiles) {
-                        for (Path fileToCopy : filesToImport) {
-                            StorageProvider.getInstance()
-                                    .copyFile(fileToCopy, Paths.get(imageBasePath.toString(), fileToCopy.getFileName().toString()));
-                        }
-                    } else {
-                        for (Path fileToCopy : filesToImport) {
-                            String filename = fileToCopy.getFileName().toString();
-                            boolean containsEdited = false;
-                            boolean betterFileExists = false;
-                            if (filename.contains("bearbeitet")) {
-                                containsEdited = true;
-                            }
-
-                            // check if edited version exists
-                            if (!containsEdited && (filename.endsWith(".jpg") || filename.endsWith(".tif"))) {
-                                String editFileName = filename.replace(".jpg", "").replace(".tif", "") + "_bearbeitet.tif";
-                                for (Path fileToCheck : filesToImport) {
-                                    String filenameToCheck = fileToCheck.getFileName().toString();
-                                    if (editFileName.equals(filenameToCheck)) {
-                                        // if this is the case, use the tif instead and skip this jpg
-                                        betterFileExists = true;
-                                        break;
-                                    }
-                                }
-                            }
+        }
+        for (CorporateBinding col : plan.getCorporates()) {
+            String[] names = col.getNames(data, null);
+            String authorityData = col.getAuthorityData(data);
+            String role = col.getMetsRole(data);
+            try {
+                Corporate c = new Corporate(getRoleType(role, col.getRulesetName(), col.getMetadataType()));
+                c.setMainName(names[0]);
+                if (StringUtils.isNotBlank(names[1])) {
+                    c.addSubName(new NamePart("subname", names[1]));
+                }
+                c.setPartName(names[2]);
+                c.setAuthorityFile("-", "-", authorityData);
+                logical.addCorporate(c);
+            } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
+                log.error(e);
+            }
 
-                            if (filename.endsWith(".jpg")) {
-                                // in case of jpg check if a tif with the same name exists
-                                String tifFilename = filename.replace(".jpg", ".tif");
+        }
 
-                                for (Path fileToCheck : filesToImport) {
-                                    String filenameToCheck = fileToCheck.getFileName().toString();
-                                    if (tifFilename.equals(filenameToCheck)) {
-                                        // if this is the case, use the tif instead and skip this jpg
-                                        betterFileExists = true;
-                                        break;
+        for (GroupBinding gmo : plan.getGroups()) {
+            // create group, if configured
+            if (gmo.getRulesetName() != null) {
+                try {
+                    MetadataGroup group = new MetadataGroup(gmo.getGroupType());
+                    // add metadata to group, if value exists
+                    for (FieldBinding col : gmo.getFields()) {
+                        if (col.getRulesetName() != null) {
+                            String value = col.getValue(data);
+                            if (StringUtils.isNotBlank(value)) {
+                                String authorityData = col.getAuthorityData(data);
+                                try {
+                                    Metadata meta = new Metadata(col.getMetadataType());
+                                    meta.setAuthorityValue(authorityData);
+                                    meta.setValue(value);
+                                    if (StringUtils.isNotBlank(authorityData)) {
+                                        meta.setAuthorityFile("-", "-", authorityData);
                                     }
-                                    // else check if a file starting with the same name exists containing "_bearbeitet"
+                                    group.addMetadata(meta);
+                                } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
+                                    log.error(e);
                                 }
-
-                                // otherwise copy the jpg
-                                if (!betterFileExists) {
-                                    StorageProvider.getInstance()
-                                            .copyFile(fileToCopy, Paths.get(imageBasePath.toString(), fileToCopy.getFileName().toString()));
-                                }
-                            } else {
-                                // always copy other file formats
-                                StorageProvider.getInstance()
-                                        .copyFile(fileToCopy, Paths.get(imageBasePath.toString(), fileToCopy.getFileName().toString()));
                             }
                         }
                     }
-                } catch (IOException e) {
+                    // only add group to docstruct, if it is not empty
+                    boolean groupHasMetadata = false;
+                    for (Metadata meta : group.getMetadataList()) {
+                        if (StringUtils.isNotBlank(meta.getValue())) {
+                            groupHasMetadata = true;
+                        }
+                    }
+                    if (groupHasMetadata) {
+                        logical.addMetadataGroup(group);
+                    }
+
+                } catch (UGHException e) {
                     log.error(e);
                 }
             }
+        }
+
+        String nodeId = getNodeId(data, plan);
 
-            io.setImportReturnValue(ImportReturnValue.ExportFinished);
-            answer.add(io);
+        if (nodeIdType != null) {
+            try {
+                Metadata eadId = new Metadata(nodeIdType);
+                eadId.setValue(nodeId);
+                logical.addMetadata(eadId);
+            } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
+                log.error(e);
+            }
         }
 
-        return answer;
+        // add selected
+        for (String colItem : digitalCollections) {
+            try {
+                Metadata mdColl = new Metadata(collectionType);
+                mdColl.setValue(colItem);
+                logical.addMetadata(mdColl);
+            } catch (MetadataTypeNotAllowedException | DocStructHasNoTypeException e) {
+                log.error(e);
+            }
+        }
+        return fileformat;
     }
 
     /**
@@ -1421,7 +1613,7 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
     @Override
     public boolean isRunnableAsGoobiScript() {
         readConfig();
-        return runAsGoobiScript;
+        return config.isRunAsGoobiScript();
     }
 
     /* *************************************************************** */
@@ -1512,61 +1704,12 @@ public class CrownImportPlugin implements IImportPluginVersion3 {
                         || filename.endsWith(".png") || filename.endsWith(".wmv"));
     };
 
-    public String getCellValue(Row row, int columnIndex, Workbook wb) {
+    public String getCellValue(Row row, int columnIndex, FormulaEvaluator evaluator) {
         Cell cell = row.getCell(columnIndex, MissingCellPolicy.CREATE_NULL_AS_BLANK);
-        String value = "";
-        switch (cell.getCellType()) {
-            case BOOLEAN:
-                value = cell.getBooleanCellValue() ? "true" : "false";
-                break;
-
-            case NUMERIC:
-                value = String.valueOf((long) cell.getNumericCellValue());
-                break;
-            case STRING:
-                value = cell.getStringCellValue();
-                break;
-            case FORMULA:
-                FormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
-
-                CellValue cellValue = evaluator.evaluate(cell);
-                switch (cellValue.getCellType()) {
-                    case CellType.BOOLEAN:
-                        value = cellValue.getBooleanValue() ? "true" : "false";
-                        break;
-                    case CellType.NUMERIC:
-                        value = String.valueOf((long) cellValue.getNumberValue());
-                        break;
-                    case CellType.STRING:
-                        value = cellValue.getStringValue();
-                        break;
-                    default:
-                        // none, error, blank
-                        value = "";
-                        break;
-                }
-                break;
-
-            default:
-                // none, error, blank
-                value = "";
-                break;
-        }
-        return value;
-    }
-
-    @SuppressWarnings("unchecked")
-    public Map<Integer, String> getRowMap(Record rec) {
-        Object tempObject = rec.getObject();
-        List<Map<?, ?>> list = (List<Map<?, ?>>) tempObject;
-        return (Map<Integer, String>) list.get(1);
+        return WorkbookRowReader.getCellValue(cell, evaluator);
     }
 
-    @SuppressWarnings("unchecked")
-    public Map<String, Integer> getHeaderOrder(Record rec) {
-        Object tempObject = rec.getObject();
-        List<Map<?, ?>> list = (List<Map<?, ?>>) tempObject;
-        return (Map<String, Integer>) list.get(0);
+    public RowData getRowData(Record rec) {
+        return (RowData) rec.getObject();
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,240 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Reads csv and tsv files. Fields can be enclosed in double quotes as described in RFC 4180, so they may contain the separator, line breaks and
+ * doubled quotes. The file is read through a large buffer and parsed character by character, nothing but the current row is kept in memory.
+ *
+ * The hierarchy of a row is either the number in the level column, or, like in a sheet, the index of the first field with content. Instead of the
+ * bold font, a value in the process column marks the rows that create a process. Level and process column are found by their names in the header
+ * row.
+ */
+public class DelimitedRowReader implements SheetRowReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char separator;
+
+    // row number of the header row, starting with 0, -1 if the file has no header
+    private final int headerRow;
+    private final String levelColumnName;
+    private final String processColumnName;
+
+    private int levelColumn = -1;
+    private int processColumn = -1;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+
+    private int rowNumber;
+    private SheetRow nextRow;
+
+    /**
+     * @param file the csv or tsv file
+     * @param charset encoding of the file
+     * @param separator field separator
+     * @param headerRow row number of the header row, starting with 0, -1 if the file has no header
+     * @param levelColumnName name of the column that contains the hierarchy, can be null
+     * @param processColumnName name of the column that marks the rows that create a process, can be null
+     * @throws IllegalArgumentException if a level or process column is configured, but the file has no header row to find it
+     */
+    public DelimitedRowReader(Path file, Charset charset, char separator, int headerRow, String levelColumnName, String processColumnName)
+            throws IOException {
+        if (headerRow < 0 && (StringUtils.isNotBlank(levelColumnName) || StringUtils.isNotBlank(processColumnName))) {
+            throw new IllegalArgumentException("Level and process column are found by their names in the header row, but no header row is set");
+        }
+        this.reader = Channels.newReader(FileChannel.open(file, StandardOpenOption.READ), charset.newDecoder(), BUFFER_SIZE);
+        this.separator = separator;
+        this.headerRow = headerRow;
+        this.levelColumnName = levelColumnName;
+        this.processColumnName = processColumnName;
+        try {
+            fill();
+            // skip the byte order mark
+            if (limit > 0 && buffer[0] == '\uFEFF') {
+                position = 1;
+            }
+            nextRow = readRow();
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * get the separator of a file, tab for tsv files and the configured separator for all other files
+     *
+     * @param filename name of the file
+     * @param configuredSeparator configured separator of csv files
+     * @return the separator
+     */
+    public static char getSeparator(String filename, String configuredSeparator) {
+        if (filename.toLowerCase().endsWith(".tsv") || "\\t".equals(configuredSeparator)) {
+            return '\t';
+        }
+        return StringUtils.isEmpty(configuredSeparator) ? ',' : configuredSeparator.charAt(0);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextRow != null;
+    }
+
+    @Override
+    public SheetRow next() {
+        if (nextRow == null) {
+            throw new NoSuchElementException();
+        }
+        SheetRow current = nextRow;
+        try {
+            nextRow = readRow();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return current;
+    }
+
+    private SheetRow readRow() throws IOException {
+        if (!readFields()) {
+            return null;
+        }
+        int currentRow = rowNumber++;
+        // an empty line is an empty row
+        if (fields.size() == 1 && fields.get(0).isEmpty()) {
+            return new SheetRow(currentRow, new String[0], 0, null, null, false);
+        }
+        String[] values = fields.toArray(new String[fields.size()]);
+        if (currentRow == headerRow) {
+            levelColumn = indexOf(values, levelColumnName);
+            processColumn = indexOf(values, processColumnName);
+        }
+        if (currentRow <= headerRow) {
+            return SheetRow.create(currentRow, values, column -> false);
+        }
+        return createDataRow(currentRow, values);
+    }
+
+    private SheetRow createDataRow(int currentRow, String[] values) {
+        boolean process = processColumn != -1 && isMarked(processColumn < values.length ? values[processColumn] : null);
+        int level = -1;
+        if (levelColumn != -1 && levelColumn < values.length && StringUtils.isNumeric(values[levelColumn].trim())) {
+            level = Integer.parseInt(values[levelColumn].trim());
+        }
+        // the level and process column are skipped when the first values are searched
+        String firstValue = null;
+        String secondValue = null;
+        int firstColumn = 0;
+        for (int i = 0; i < values.length && secondValue == null; i++) {
+            if (i == levelColumn || i == processColumn || StringUtils.isBlank(values[i])) {
+                continue;
+            }
+            if (firstValue == null) {
+                firstValue = values[i];
+                firstColumn = i;
+            } else {
+                secondValue = values[i];
+            }
+        }
+        // without a level, the hierarchy is defined by the leading empty fields
+        return new SheetRow(currentRow, values, level == -1 ? firstColumn : level, firstValue, secondValue, process);
+    }
+
+    /**
+     * read the fields of the next row
+     *
+     * @return false, if the end of the file was reached
+     */
+    private boolean readFields() throws IOException {
+        fields.clear();
+        if (position >= limit && !fill()) {
+            return false;
+        }
+        field.setLength(0);
+        boolean quoted = false;
+        // true, if the current field started with a quote
+        boolean quotedField = false;
+        while (position < limit || fill()) {
+            char c = buffer[position++];
+            if (quoted) {
+                if (c == '"') {
+                    if ((position < limit || fill()) && buffer[position] == '"') {
+                        // escaped quote
+                        field.append('"');
+                        position++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+                quotedField = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && (position < limit || fill()) && buffer[position] == '\n') {
+                    position++;
+                }
+                fields.add(field.toString());
+                return true;
+            } else if (c == '"' && field.length() == 0 && !quotedField) {
+                quoted = true;
+                quotedField = true;
+            } else {
+                field.append(c);
+            }
+        }
+        // last line without line break
+        fields.add(field.toString());
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    private static int indexOf(String[] values, String name) {
+        if (StringUtils.isBlank(name)) {
+            return -1;
+        }
+        return Arrays.asList(values).indexOf(name);
+    }
+
+    /**
+     * a row creates a process, if the process column contains a value other than false, no or 0
+     */
+    private static boolean isMarked(String value) {
+        if (StringUtils.isBlank(value)) {
+            return false;
+        }
+        String marker = value.trim().toLowerCase();
+        return !"false".equals(marker) && !"no".equals(marker) && !"0".equals(marker);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,79 @@
+package de.intranda.goobi.plugins;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects the files of an image folder that are imported. The files are grouped by their name without the configured suffix. If a group contains
+ * more than one derivative, only the file with the suffix configured first is used. Files without a configured suffix are always imported.
+ *
+ * A file that ends with several suffixes belongs to several groups: {@code x_bearbeitet.tif} is compared with {@code x.jpg} as well as with
+ * {@code x_bearbeitet.jpg}, and is preferred in both groups.
+ */
+public class DerivativeSelection {
+
+    public static final List<String> DEFAULT_SUFFIXES = Collections.unmodifiableList(Arrays.asList("_bearbeitet.tif", ".tif", ".jpg"));
+
+    // suffixes in order of preference
+    private final List<String> suffixes;
+
+    // suffixes sorted by length, to find the longest matching suffix first
+    private final List<String> matchOrder;
+
+    public DerivativeSelection(List<String> suffixes) {
+        this.suffixes = Collections.unmodifiableList(new ArrayList<>(suffixes));
+        List<String> sorted = new ArrayList<>(suffixes);
+        sorted.sort(Comparator.comparingInt(String::length).reversed());
+        matchOrder = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * get the files to import
+     *
+     * @param files all files of the folder
+     * @return the preferred derivatives and all files without a configured suffix, in the order of the given list
+     */
+    public List<Path> select(List<Path> files) {
+        // for each file the rank of every matching suffix, or -1 if the suffix doesn't match
+        int[][] ranks = new int[files.size()][];
+        Map<String, Integer> bestRank = new HashMap<>();
+
+        for (int i = 0; i < files.size(); i++) {
+            String filename = files.get(i).getFileName().toString();
+            ranks[i] = new int[matchOrder.size()];
+            for (int s = 0; s < matchOrder.size(); s++) {
+                String suffix = matchOrder.get(s);
+                ranks[i][s] = -1;
+                if (filename.endsWith(suffix)) {
+                    ranks[i][s] = suffixes.indexOf(suffix);
+                    bestRank.merge(getBaseName(filename, suffix), ranks[i][s], Math::min);
+                }
+            }
+        }
+
+        List<Path> selected = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            String filename = files.get(i).getFileName().toString();
+            boolean preferred = true;
+            for (int s = 0; s < matchOrder.size(); s++) {
+                if (ranks[i][s] != -1 && ranks[i][s] != bestRank.get(getBaseName(filename, matchOrder.get(s)))) {
+                    preferred = false;
+                }
+            }
+            if (preferred) {
+                selected.add(files.get(i));
+            }
+        }
+        return selected;
+    }
+
+    private static String getBaseName(String filename, String suffix) {
+        return filename.substring(0, filename.length() - suffix.length());
+    }
+}
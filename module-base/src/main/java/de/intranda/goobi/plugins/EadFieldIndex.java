@@ -0,0 +1,83 @@
+package de.intranda.goobi.plugins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.goobi.interfaces.IEadEntry;
+import org.goobi.interfaces.IMetadataField;
+
+/**
+ * Index of the metadata fields of an ead node. The fields are grouped by their area (level 1-7) and can be found by their name. The index is
+ * created once for each node, when its metadata is added.
+ */
+public class EadFieldIndex {
+
+    private final List<Map<String, IMetadataField>> areas = new ArrayList<>(8);
+
+    // names of the sub fields of group fields, created on first access
+    private final Map<IMetadataField, Set<String>> subfieldNames = new IdentityHashMap<>();
+
+    public EadFieldIndex(IEadEntry entry) {
+        // level 0 is not used
+        areas.add(Collections.emptyMap());
+        areas.add(createArea(entry.getIdentityStatementAreaList()));
+        areas.add(createArea(entry.getContextAreaList()));
+        areas.add(createArea(entry.getContentAndStructureAreaAreaList()));
+        areas.add(createArea(entry.getAccessAndUseAreaList()));
+        areas.add(createArea(entry.getAlliedMaterialsAreaList()));
+        areas.add(createArea(entry.getNotesAreaList()));
+        areas.add(createArea(entry.getDescriptionControlAreaList()));
+    }
+
+    private static Map<String, IMetadataField> createArea(List<IMetadataField> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, IMetadataField> area = new HashMap<>();
+        for (IMetadataField field : fields) {
+            // if a name is used more than once, the first field is used
+            area.putIfAbsent(field.getName(), field);
+        }
+        return area;
+    }
+
+    /**
+     * find a field
+     *
+     * @param level the area of the field, 1-7
+     * @param name the field name
+     * @return the field or null, if the area doesn't contain a field with this name
+     */
+    public IMetadataField getField(int level, String name) {
+        if (level < 1 || level >= areas.size() || name == null) {
+            return null;
+        }
+        return areas.get(level).get(name);
+    }
+
+    /**
+     * check if a group field contains a sub field with the given name
+     *
+     * @param field the group field
+     * @param name name of the sub field
+     * @return true, if the sub field exists
+     */
+    public boolean hasSubfield(IMetadataField field, String name) {
+        return subfieldNames.computeIfAbsent(field, f -> {
+            if (f.getSubfields() == null) {
+                return Collections.emptySet();
+            }
+            Set<String> names = new HashSet<>();
+            for (IMetadataField subfield : f.getSubfields()) {
+                names.add(subfield.getName());
+            }
+            return names;
+        }).contains(name);
+    }
+}
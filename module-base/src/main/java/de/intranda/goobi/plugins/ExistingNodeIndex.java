@@ -0,0 +1,73 @@
+package de.intranda.goobi.plugins;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.goobi.interfaces.IEadEntry;
+
+import de.sub.goobi.persistence.managers.MySQLHelper;
+
+/**
+ * Finds the nodes of an existing archive by their identifier. All identifiers of the record group are loaded with a single query, the nodes of the
+ * loaded tree are indexed by their database id.
+ */
+public class ExistingNodeIndex {
+
+    private static final String QUERY = "select uuid, id from archive_record_node WHERE archive_record_group_id = ?";
+
+    private static final ResultSetHandler<Map<String, Integer>> UUID_HANDLER = rs -> {
+        Map<String, Integer> answer = new HashMap<>();
+        while (rs.next()) {
+            String uuid = rs.getString("uuid");
+            if (uuid != null) {
+                answer.putIfAbsent(uuid, rs.getInt("id"));
+            }
+        }
+        return answer;
+    };
+
+    private final Map<String, Integer> idsByUuid;
+    private final Map<Integer, IEadEntry> nodesById = new HashMap<>();
+
+    public ExistingNodeIndex(Map<String, Integer> idsByUuid, IEadEntry rootEntry) {
+        this.idsByUuid = idsByUuid;
+        for (IEadEntry entry : rootEntry.getAllNodes()) {
+            if (entry.getDatabaseId() != null) {
+                nodesById.putIfAbsent(entry.getDatabaseId(), entry);
+            }
+        }
+    }
+
+    /**
+     * load the identifiers of all nodes of the record group and index the loaded tree
+     *
+     * @param recordGroupId database id of the archive
+     * @param rootEntry root node of the loaded tree
+     * @return the index
+     * @throws SQLException
+     */
+    public static ExistingNodeIndex load(Integer recordGroupId, IEadEntry rootEntry) throws SQLException {
+        try (Connection connection = MySQLHelper.getInstance().getConnection()) {
+            Map<String, Integer> ids = new QueryRunner().query(connection, QUERY, UUID_HANDLER, recordGroupId);
+            return new ExistingNodeIndex(ids, rootEntry);
+        }
+    }
+
+    /**
+     * find a node by its identifier
+     *
+     * @param identifier the identifier
+     * @return the node or null, if the archive doesn't contain a node with this identifier
+     */
+    public IEadEntry find(String identifier) {
+        Integer databaseId = idsByUuid.get(identifier);
+        if (databaseId == null) {
+            return null;
+        }
+        return nodesById.get(databaseId);
+    }
+}
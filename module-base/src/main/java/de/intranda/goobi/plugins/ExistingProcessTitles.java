@@ -0,0 +1,88 @@
+package de.intranda.goobi.plugins;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+import de.sub.goobi.persistence.managers.MySQLHelper;
+
+/**
+ * Finds the process titles that are already used in Goobi. The titles are checked with a few queries, each query checks up to
+ * {@value #BATCH_SIZE} titles. Like the database, the titles are compared case-insensitively.
+ */
+public final class ExistingProcessTitles {
+
+    static final int BATCH_SIZE = 500;
+
+    private static final ResultSetHandler<List<String>> TITLE_HANDLER = rs -> {
+        List<String> answer = new ArrayList<>();
+        while (rs.next()) {
+            answer.add(rs.getString("Titel"));
+        }
+        return answer;
+    };
+
+    private ExistingProcessTitles() {
+    }
+
+    /**
+     * query of a single batch, returns the titles of the batch that are used by existing processes
+     */
+    @FunctionalInterface
+    interface TitleQuery {
+        List<String> query(List<String> titles) throws SQLException;
+    }
+
+    /**
+     * find the titles that are used by existing processes
+     *
+     * @param titles the titles to check
+     * @return the titles that are already used
+     * @throws SQLException
+     */
+    public static Set<String> find(Collection<String> titles) throws SQLException {
+        if (titles.isEmpty()) {
+            return Collections.emptySet();
+        }
+        try (Connection connection = MySQLHelper.getInstance().getConnection()) {
+            QueryRunner runner = new QueryRunner();
+            return find(titles, batch -> runner.query(connection,
+                    "select Titel from prozesse where Titel in (" + String.join(",", Collections.nCopies(batch.size(), "?")) + ")", TITLE_HANDLER,
+                    batch.toArray()));
+        }
+    }
+
+    /**
+     * find the titles that are used by existing processes, the titles are passed to the query in batches of {@value #BATCH_SIZE}
+     *
+     * @param titles the titles to check
+     * @param query the query of a batch
+     * @return the titles that are already used, in the spelling of the given titles
+     * @throws SQLException
+     */
+    static Set<String> find(Collection<String> titles, TitleQuery query) throws SQLException {
+        List<String> distinctTitles = new ArrayList<>(new HashSet<>(titles));
+        Set<String> existing = new HashSet<>();
+        for (int start = 0; start < distinctTitles.size(); start += BATCH_SIZE) {
+            List<String> batch = distinctTitles.subList(start, Math.min(start + BATCH_SIZE, distinctTitles.size()));
+            for (String title : query.query(batch)) {
+                existing.add(title.toLowerCase());
+            }
+        }
+        Set<String> answer = new HashSet<>();
+        for (String title : distinctTitles) {
+            if (existing.contains(title.toLowerCase())) {
+                answer.add(title);
+            }
+        }
+        return answer;
+    }
+}
@@ -0,0 +1,39 @@
+package de.intranda.goobi.plugins;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the column names of the header row to their column index. A single instance is created for each imported sheet and shared by all rows.
+ */
+public class HeaderIndex {
+
+    private final Map<String, Integer> columns;
+
+    public HeaderIndex(Map<String, Integer> columns) {
+        this.columns = Collections.unmodifiableMap(new HashMap<>(columns));
+    }
+
+    /**
+     * get the index of a column
+     *
+     * @param columnName name of the column in the header row
+     * @return the index or -1, if the column does not exist
+     */
+    public int indexOf(String columnName) {
+        if (columnName == null) {
+            return -1;
+        }
+        Integer index = columns.get(columnName);
+        return index == null ? -1 : index;
+    }
+
+    public boolean contains(String columnName) {
+        return columnName != null && columns.containsKey(columnName);
+    }
+
+    public Map<String, Integer> asMap() {
+        return columns;
+    }
+}
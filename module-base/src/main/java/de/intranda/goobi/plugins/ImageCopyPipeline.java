@@ -0,0 +1,188 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.goobi.production.enums.ImportReturnValue;
+import org.goobi.production.importer.ImportObject;
+
+import de.intranda.goobi.plugins.ImportMetrics.Phase;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Copies the images of the records in the background, while the metadata of the next records is created. The number of parallel copies is limited
+ * in total and for each configured volume. If the queue is full, the calling thread copies the file itself, so the metadata generation can't run
+ * too far ahead.
+ *
+ * Failed copies are collected for each record and reported on its {@link ImportObject} when the batch is finished.
+ */
+@Log4j2
+public class ImageCopyPipeline {
+
+    private final ImageTransfer transfer;
+
+    private final ThreadPoolExecutor executor;
+
+    // configured volumes, key is the mount point
+    private final Map<Path, Semaphore> volumes = new TreeMap<>(Collections.reverseOrder());
+
+    private final Map<ImportObject, RecordCopy> records = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private final LongAdder copiedFiles = new LongAdder();
+    private final LongAdder copiedBytes = new LongAdder();
+    private final LongAdder failedFiles = new LongAdder();
+    private final long start = System.nanoTime();
+
+    private final ImportMetrics metrics = ImportMetrics.getInstance();
+
+    /**
+     * @param transfer transfers a single file
+     * @param threads maximal number of parallel copies
+     * @param volumeLimits maximal number of parallel copies for a volume, key is the mount point of the volume
+     */
+    public ImageCopyPipeline(ImageTransfer transfer, int threads, Map<String, Integer> volumeLimits) {
+        this.transfer = transfer;
+        int poolSize = Math.max(1, threads);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(poolSize * 4),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        for (Map.Entry<String, Integer> entry : volumeLimits.entrySet()) {
+            volumes.put(Path.of(entry.getKey()).toAbsolutePath().normalize(), new Semaphore(Math.max(1, entry.getValue()), true));
+        }
+    }
+
+    /**
+     * copy the images of a record into the target folder
+     *
+     * @param io the record, gets the error message if a file cannot be copied
+     * @param files the images
+     * @param targetFolder the images folder of the process, must exist
+     */
+    public void copy(ImportObject io, List<Path> files, Path targetFolder) {
+        RecordCopy recordCopy = records.computeIfAbsent(io, k -> new RecordCopy());
+        for (Path file : files) {
+            Path target = targetFolder.resolve(file.getFileName().toString());
+            recordCopy.futures.add(executor.submit(() -> copyFile(recordCopy, file, target)));
+        }
+    }
+
+    private void copyFile(RecordCopy recordCopy, Path source, Path target) {
+        List<Semaphore> permits = getVolumes(source, target);
+        try {
+            for (Semaphore permit : permits) {
+                permit.acquire();
+            }
+            try {
+                long copyStart = metrics.start();
+                transfer.transfer(source, target);
+                metrics.record(Phase.IMAGE_COPY, copyStart);
+                long size = Files.size(target);
+                copiedFiles.increment();
+                copiedBytes.add(size);
+                metrics.imageCopied(size);
+            } finally {
+                for (Semaphore permit : permits) {
+                    permit.release();
+                }
+            }
+        } catch (IOException e) {
+            log.error("Cannot copy {} to {}", source, target, e);
+            failedFiles.increment();
+            recordCopy.errors.add(source.getFileName() + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedFiles.increment();
+            recordCopy.errors.add(source.getFileName() + ": copy was interrupted");
+        }
+    }
+
+    /**
+     * get the limits of the volumes of source and target, always in the same order to avoid dead locks
+     */
+    List<Semaphore> getVolumes(Path source, Path target) {
+        Semaphore sourceVolume = findVolume(source.toAbsolutePath().normalize());
+        Semaphore targetVolume = findVolume(target.toAbsolutePath().normalize());
+        List<Semaphore> permits = new ArrayList<>(2);
+        for (Semaphore volume : volumes.values()) {
+            if (volume == sourceVolume || volume == targetVolume) {
+                permits.add(volume);
+            }
+        }
+        return permits;
+    }
+
+    private Semaphore findVolume(Path path) {
+        // longest mount point first
+        for (Map.Entry<Path, Semaphore> entry : volumes.entrySet()) {
+            if (path.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wait until all images are copied. Records with failed copies get the status WriteError and the list of failed files as error message. The
+     * statistics of the batch are logged.
+     */
+    public void finish() {
+        try {
+            synchronized (records) {
+                for (Map.Entry<ImportObject, RecordCopy> entry : records.entrySet()) {
+                    RecordCopy recordCopy = entry.getValue();
+                    for (Future<?> future : recordCopy.futures) {
+                        try {
+                            future.get();
+                        } catch (ExecutionException e) {
+                            log.error(e);
+                            recordCopy.errors.add(String.valueOf(e.getCause().getMessage()));
+                        }
+                    }
+                    if (!recordCopy.errors.isEmpty()) {
+                        ImportObject io = entry.getKey();
+                        io.setImportReturnValue(ImportReturnValue.WriteError);
+                        io.setErrorMessage("Images could not be copied: " + String.join("; ", recordCopy.errors));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            log.error(e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            if (copiedFiles.sum() > 0) {
+                metrics.copyFinished(System.nanoTime() - start);
+            }
+            logStatistics();
+        }
+    }
+
+    private void logStatistics() {
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000d;
+        long files = copiedFiles.sum();
+        long bytes = copiedBytes.sum();
+        log.info("Copied {} images ({} MB) in {} s: {} files/s, {} MB/s, {} failed", files, String.format("%.1f", bytes / 1048576d),
+                String.format("%.1f", seconds), String.format("%.1f", files / seconds), String.format("%.1f", bytes / 1048576d / seconds),
+                failedFiles.sum());
+    }
+
+    private static class RecordCopy {
+        private final List<Future<?>> futures = Collections.synchronizedList(new ArrayList<>());
+        private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+    }
+}
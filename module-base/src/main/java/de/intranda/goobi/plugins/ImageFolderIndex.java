@@ -0,0 +1,262 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Catalogue of all image folders below the configured image root folder. The index contains the name, path, modification time and file list of
+ * each directory. It is kept in memory and stored in the import folder, so it can be shared by all imports.
+ *
+ * When the index is refreshed, only directories with a changed modification time are listed again. The modification time of a directory changes
+ * whenever a file or sub directory is created, deleted or renamed, so unchanged directories can be taken from the index.
+ */
+@Log4j2
+public class ImageFolderIndex {
+
+    private static final int FORMAT_VERSION = 1;
+
+    // same depth as used before for Files.find
+    private static final int MAX_DEPTH = 10;
+
+    // directories changed shortly before the last scan are always listed again, the file system may store the time in seconds only
+    private static final long MODIFICATION_TOLERANCE = 2000;
+
+    private static final Map<Path, ImageFolderIndex> INSTANCES = new ConcurrentHashMap<>();
+
+    private final Path rootFolder;
+
+    // all known directories, key is the absolute path
+    private Map<String, DirectoryEntry> directories = new HashMap<>();
+
+    // directory name to path, used to find the image folder of a record
+    private Map<String, DirectoryEntry> directoriesByName = new HashMap<>();
+
+    private long lastScan;
+
+    private ImageFolderIndex(Path rootFolder) {
+        this.rootFolder = rootFolder;
+    }
+
+    /**
+     * Get the index for the given image root folder. The index is loaded from the index file, if it is not yet in memory, and refreshed.
+     *
+     * @param rootFolder image root folder
+     * @param indexFile file to store the index, can be null to keep the index in memory only
+     * @return the refreshed index
+     */
+    public static ImageFolderIndex getIndex(Path rootFolder, Path indexFile) {
+        ImageFolderIndex index = INSTANCES.computeIfAbsent(rootFolder.toAbsolutePath().normalize(), ImageFolderIndex::new);
+        synchronized (index) {
+            if (index.lastScan == 0 && indexFile != null && Files.isRegularFile(indexFile)) {
+                index.load(indexFile);
+            }
+            if (index.refresh() && indexFile != null) {
+                index.save(indexFile);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * find a directory by its name
+     *
+     * @param name directory name
+     * @return the path or null, if no directory with this name exists
+     */
+    public synchronized Path getFolder(String name) {
+        DirectoryEntry entry = directoriesByName.get(name);
+        return entry == null ? null : entry.path;
+    }
+
+    /**
+     * list the files of a directory, sorted by name
+     *
+     * @param folder the directory
+     * @param filter filter for the files, can be null
+     * @return the files, an empty list if the directory is unknown
+     */
+    public synchronized List<Path> listFiles(Path folder, DirectoryStream.Filter<Path> filter) {
+        DirectoryEntry entry = directories.get(folder.toString());
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        List<Path> files = new ArrayList<>(entry.files.size());
+        for (String filename : entry.files) {
+            Path file = folder.resolve(filename);
+            try {
+                if (filter == null || filter.accept(file)) {
+                    files.add(file);
+                }
+            } catch (IOException e) {
+                log.error(e);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * check all directories and list the changed ones
+     *
+     * @return true, if the index was changed
+     */
+    private boolean refresh() {
+        long scanStart = System.currentTimeMillis();
+        Map<String, DirectoryEntry> newDirectories = new HashMap<>();
+        Map<String, DirectoryEntry> newNames = new HashMap<>();
+        boolean changed = false;
+        if (Files.isDirectory(rootFolder)) {
+            changed = visit(rootFolder, 0, newDirectories, newNames);
+        }
+        changed = changed || newDirectories.size() != directories.size();
+        directories = newDirectories;
+        directoriesByName = newNames;
+        lastScan = scanStart;
+        return changed;
+    }
+
+    private boolean visit(Path folder, int depth, Map<String, DirectoryEntry> newDirectories, Map<String, DirectoryEntry> newNames) {
+        boolean changed = false;
+        long modified;
+        try {
+            modified = Files.getLastModifiedTime(folder).toMillis();
+        } catch (IOException e) {
+            log.error(e);
+            return true;
+        }
+        DirectoryEntry entry = directories.get(folder.toString());
+        if (entry == null || entry.modified != modified || modified >= lastScan - MODIFICATION_TOLERANCE) {
+            try {
+                entry = listDirectory(folder, modified);
+                changed = true;
+            } catch (IOException e) {
+                log.error(e);
+                return true;
+            }
+        }
+        newDirectories.put(folder.toString(), entry);
+        newNames.put(folder.getFileName().toString(), entry);
+        if (depth < MAX_DEPTH) {
+            for (String subfolder : entry.subdirectories) {
+                changed = visit(folder.resolve(subfolder), depth + 1, newDirectories, newNames) || changed;
+            }
+        }
+        return changed;
+    }
+
+    private static DirectoryEntry listDirectory(Path folder, long modified) throws IOException {
+        List<String> subdirectories = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    // deleted in the meantime
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    subdirectories.add(path.getFileName().toString());
+                } else if (attributes.isRegularFile()) {
+                    files.add(path.getFileName().toString());
+                }
+            }
+        }
+        Collections.sort(subdirectories);
+        Collections.sort(files);
+        return new DirectoryEntry(folder, modified, subdirectories, files);
+    }
+
+    private void load(Path indexFile) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != FORMAT_VERSION || !rootFolder.toString().equals(in.readUTF())) {
+                return;
+            }
+            long scan = in.readLong();
+            int numberOfDirectories = in.readInt();
+            Map<String, DirectoryEntry> loaded = new HashMap<>(numberOfDirectories * 2);
+            for (int i = 0; i < numberOfDirectories; i++) {
+                Path path = Paths.get(in.readUTF());
+                long modified = in.readLong();
+                List<String> subdirectories = readList(in);
+                List<String> files = readList(in);
+                loaded.put(path.toString(), new DirectoryEntry(path, modified, subdirectories, files));
+            }
+            directories = loaded;
+            lastScan = scan;
+        } catch (IOException e) {
+            // the index gets created again
+            log.error("Cannot read image folder index {}", indexFile, e);
+        }
+    }
+
+    private void save(Path indexFile) {
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(rootFolder.toString());
+                out.writeLong(lastScan);
+                out.writeInt(directories.size());
+                for (DirectoryEntry entry : directories.values()) {
+                    out.writeUTF(entry.path.toString());
+                    out.writeLong(entry.modified);
+                    writeList(out, entry.subdirectories);
+                    writeList(out, entry.files);
+                }
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Cannot write image folder index {}", indexFile, e);
+        }
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(in.readUTF());
+        }
+        return list;
+    }
+
+    private static void writeList(DataOutputStream out, List<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String value : list) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static class DirectoryEntry {
+        private final Path path;
+        private final long modified;
+        private final List<String> subdirectories;
+        private final List<String> files;
+
+        DirectoryEntry(Path path, long modified, List<String> subdirectories, List<String> files) {
+            this.path = path;
+            this.modified = modified;
+            this.subdirectories = subdirectories;
+            this.files = files;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import de.sub.goobi.helper.StorageProvider;
+import de.sub.goobi.helper.StorageProviderInterface;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Transfers an image into the process folder. Depending on the configured mode the file is linked, transferred by the file system or copied. If a
+ * mode is not supported, e.g. because source and target are located on different volumes, the next mode is used.
+ *
+ * After the transfer size and modification time of source and target are compared. Files that already exist with the same size and modification
+ * time are not transferred again.
+ *
+ * A hard link is no copy, source and target share the same content and attributes. Any change of the image inside the process folder changes the
+ * original file as well, therefore the modification time of a link is never set.
+ */
+@Log4j2
+public class ImageTransfer {
+
+    public enum TransferMode {
+        // create a hard link, source and target must be on the same volume
+        HARDLINK,
+        // let the file system transfer the content, this creates a reflink on file systems that support it
+        REFLINK,
+        // copy the content
+        COPY;
+
+        public static TransferMode getMode(String value) {
+            for (TransferMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+            return COPY;
+        }
+    }
+
+    @Getter
+    private final TransferMode mode;
+
+    // set after the first failed attempt, the volumes don't change during an import
+    private volatile boolean hardlinkUnsupported;
+
+    // the target is checked and copied by the storage provider of goobi
+    private final StorageProviderInterface storageProvider;
+
+    public ImageTransfer(TransferMode mode) {
+        this(mode, StorageProvider.getInstance());
+    }
+
+    ImageTransfer(TransferMode mode, StorageProviderInterface storageProvider) {
+        this.mode = mode;
+        this.storageProvider = storageProvider;
+    }
+
+    /**
+     * transfer a file
+     *
+     * @param source the image
+     * @param target the destination inside the process folder
+     * @throws IOException if the file cannot be transferred or the result differs from the source
+     */
+    public void transfer(Path source, Path target) throws IOException {
+        BasicFileAttributes sourceAttributes = Files.readAttributes(source, BasicFileAttributes.class);
+        if (isIdentical(sourceAttributes, target)) {
+            return;
+        }
+        boolean linked = false;
+        if (mode == TransferMode.HARDLINK && !hardlinkUnsupported) {
+            linked = createLink(source, target);
+        }
+        if (!linked) {
+            boolean done = mode != TransferMode.COPY && transferContent(source, target, sourceAttributes.size());
+            if (!done) {
+                storageProvider.copyFile(source, target);
+            }
+            // a link shares the attributes of the source, setting them would change the original file
+            Files.setLastModifiedTime(target, sourceAttributes.lastModifiedTime());
+        }
+
+        if (!isIdentical(sourceAttributes, target)) {
+            throw new IOException("Transferred file " + target + " differs from " + source);
+        }
+    }
+
+    private boolean createLink(Path source, Path target) {
+        try {
+            Files.deleteIfExists(target);
+            link(source, target);
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            log.info("Cannot create hard link for {}, transfer content instead: {}", source, e.getMessage());
+            hardlinkUnsupported = true;
+            return false;
+        }
+    }
+
+    /**
+     * create the hard link, overwritten in tests to simulate volumes that don't support links
+     */
+    void link(Path source, Path target) throws IOException {
+        Files.createLink(target, source);
+    }
+
+    private boolean transferContent(Path source, Path target, long size) {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            return position == size;
+        } catch (FileSystemException e) {
+            log.info("Cannot transfer {}, copy file instead: {}", source, e.getMessage());
+            return false;
+        } catch (IOException e) {
+            log.error(e);
+            return false;
+        }
+    }
+
+    private boolean isIdentical(BasicFileAttributes sourceAttributes, Path target) throws IOException {
+        if (!storageProvider.isFileExists(target)) {
+            return false;
+        }
+        // compare seconds only, not all file systems store a higher precision
+        long targetSeconds = TimeUnit.MILLISECONDS.toSeconds(storageProvider.getLastModifiedDate(target));
+        return sourceAttributes.size() == storageProvider.getFileSize(target)
+                && sourceAttributes.lastModifiedTime().to(TimeUnit.SECONDS) == targetSeconds;
+    }
+}
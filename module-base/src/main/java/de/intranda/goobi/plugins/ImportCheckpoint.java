@@ -0,0 +1,328 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Progress of an import, used to continue after a restart. Three files are written into the import folder:
+ * <ul>
+ * <li>the row log, one line for each created node with the sheet row, the id of the node and the hierarchy offset. The last line marks the end of
+ * the file once all rows were read</li>
+ * <li>the list of records whose METS file was written, one record id per line</li>
+ * <li>the ids of all records of the file, written once all rows were read</li>
+ * </ul>
+ * Each node is appended to the row log when it was created, so no node is created twice if the import is stopped. The log is forced to the disk
+ * every n rows, only a crash of the operating system can lose the last rows. The list of records is written every n records, at most n METS files
+ * are written again.
+ *
+ * The files are removed once the METS files of all records were written, either in one call or in the calls of several GoobiScript jobs.
+ */
+@Log4j2
+public class ImportCheckpoint {
+
+    // last line of the row log once all rows were read
+    private static final String END_OF_FILE = "end";
+
+    private final Path rowFile;
+    private final Path recordFile;
+    private final Path expectedFile;
+    private final int interval;
+
+    // last row whose node was created, -1 if no row was processed
+    @Getter
+    private int lastRow = -1;
+    // id of the last created node, null if the checkpoint doesn't contain a node
+    @Getter
+    private String lastNodeId;
+    @Getter
+    private int totalHierarchy;
+    // true, if all rows of the file were read and all nodes were created
+    @Getter
+    private boolean rowsFinished;
+
+    // open row log, null if no row was written by this instance
+    private FileChannel rowLog;
+    private int rowsSinceSync;
+
+    private final Set<String> completedRecords = ConcurrentHashMap.newKeySet();
+    private final List<String> pendingRecords = new ArrayList<>();
+    // ids of all records of the file, null until all rows were read
+    private Set<String> expectedRecords;
+
+    /**
+     * @param folder folder for the checkpoint files
+     * @param name base name of the files
+     * @param interval number of rows and records between two checkpoints
+     */
+    public ImportCheckpoint(Path folder, String name, int interval) {
+        rowFile = folder.resolve(name + ".rows");
+        recordFile = folder.resolve(name + ".records");
+        expectedFile = folder.resolve(name + ".expected");
+        this.interval = Math.max(1, interval);
+    }
+
+    /**
+     * read the existing checkpoint files to resume an import
+     */
+    public synchronized void load() {
+        try (BufferedReader reader = Files.newBufferedReader(rowFile, StandardCharsets.UTF_8)) {
+            // the last line is incomplete, if the import was stopped while it was written
+            boolean lastLineComplete = endsWithLineBreak(rowFile);
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (next != null || lastLineComplete) {
+                    readRowLine(line);
+                }
+                line = next;
+            }
+        } catch (NoSuchFileException e) {
+            // no node was created yet
+        } catch (IOException e) {
+            log.error("Cannot read checkpoint {}", rowFile, e);
+        }
+        readRecordFile();
+        if (rowsFinished) {
+            expectedRecords = new HashSet<>();
+            readIds(expectedFile, expectedRecords);
+        }
+    }
+
+    private static boolean endsWithLineBreak(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            channel.read(lastByte, channel.size() - 1);
+            return lastByte.get(0) == '\n';
+        }
+    }
+
+    private void readRowLine(String line) {
+        if (END_OF_FILE.equals(line)) {
+            rowsFinished = true;
+            return;
+        }
+        String[] fields = line.split("\t", -1);
+        try {
+            lastRow = Integer.parseInt(fields[0]);
+            lastNodeId = fields[1].isEmpty() ? null : fields[1];
+            totalHierarchy = Integer.parseInt(fields[2]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            log.error("Invalid line in checkpoint {}: {}", rowFile, line);
+        }
+    }
+
+    private void readRecordFile() {
+        readIds(recordFile, completedRecords);
+    }
+
+    private static void readIds(Path file, Set<String> ids) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    ids.add(line);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // nothing was written yet
+        } catch (IOException e) {
+            log.error("Cannot read checkpoint {}", file, e);
+        }
+    }
+
+    public int getNumberOfCompletedRecords() {
+        return completedRecords.size();
+    }
+
+    /**
+     * delete the checkpoint files of a previous import
+     */
+    public synchronized void clear() {
+        close();
+        try {
+            Files.deleteIfExists(rowFile);
+            Files.deleteIfExists(recordFile);
+            Files.deleteIfExists(expectedFile);
+        } catch (IOException e) {
+            log.error(e);
+        }
+    }
+
+    /**
+     * the node of a row was created, it is appended to the row log
+     *
+     * @param row sheet row
+     * @param nodeId id of the created node
+     * @param hierarchy hierarchy offset of the current part of the tree
+     */
+    public synchronized void rowCompleted(int row, String nodeId, int hierarchy) {
+        lastRow = row;
+        lastNodeId = nodeId;
+        totalHierarchy = hierarchy;
+        appendRow(row + "\t" + (nodeId == null ? "" : nodeId) + "\t" + hierarchy);
+        if (++rowsSinceSync >= interval) {
+            sync();
+        }
+    }
+
+    /**
+     * All rows were read and all nodes were created, the next run doesn't create any node again. The checkpoint is kept until the METS files of
+     * the given records were written.
+     *
+     * @param recordIds ids of the records of the file that are imported
+     */
+    public synchronized void rowsFinished(Collection<String> recordIds) {
+        expectedRecords = new HashSet<>(recordIds);
+        Path tempFile = expectedFile.resolveSibling(expectedFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(expectedFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                for (String id : expectedRecords) {
+                    writer.write(id);
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, expectedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Cannot write checkpoint {}", expectedFile, e);
+            return;
+        }
+        // the end is only marked after the list of records is complete
+        if (!rowsFinished) {
+            appendRow(END_OF_FILE);
+            rowsFinished = true;
+        }
+        close();
+    }
+
+    private void appendRow(String line) {
+        try {
+            if (rowLog == null) {
+                Files.createDirectories(rowFile.getParent());
+                rowLog = FileChannel.open(rowFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                rowLog.write(buffer);
+            }
+        } catch (IOException e) {
+            log.error("Cannot write checkpoint {}", rowFile, e);
+        }
+    }
+
+    private void sync() {
+        rowsSinceSync = 0;
+        if (rowLog != null) {
+            try {
+                rowLog.force(false);
+            } catch (IOException e) {
+                log.error("Cannot write checkpoint {}", rowFile, e);
+            }
+        }
+    }
+
+    /**
+     * force the row log to the disk and close it, the next created node opens it again
+     */
+    public synchronized void close() {
+        if (rowLog != null) {
+            sync();
+            try {
+                rowLog.close();
+            } catch (IOException e) {
+                log.error(e);
+            }
+            rowLog = null;
+        }
+    }
+
+    /**
+     * @param id record id
+     * @return true, if the METS file of the record was written in a previous run
+     */
+    public boolean isCompleted(String id) {
+        return completedRecords.contains(id);
+    }
+
+    /**
+     * the METS file of a record was written, the list is written every n records
+     *
+     * @param id record id
+     */
+    public synchronized void recordCompleted(String id) {
+        completedRecords.add(id);
+        pendingRecords.add(id);
+        if (pendingRecords.size() >= interval) {
+            flush();
+        }
+    }
+
+    /**
+     * write the records that were completed since the last checkpoint
+     */
+    public synchronized void flush() {
+        if (pendingRecords.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(recordFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(recordFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)) {
+                for (String id : pendingRecords) {
+                    writer.write(id);
+                    writer.newLine();
+                }
+            }
+            pendingRecords.clear();
+        } catch (IOException e) {
+            log.error("Cannot write checkpoint {}", recordFile, e);
+        }
+    }
+
+    /**
+     * Remove the checkpoint, if all rows were read and the METS files of all records of the file were written. Records completed by other
+     * instances, e.g. by other GoobiScript jobs, are read from the list of records.
+     *
+     * @return true, if the import is finished and the checkpoint was removed
+     */
+    public synchronized boolean finishIfComplete() {
+        flush();
+        if (expectedRecords == null) {
+            return false;
+        }
+        if (!completedRecords.containsAll(expectedRecords)) {
+            readRecordFile();
+            if (!completedRecords.containsAll(expectedRecords)) {
+                return false;
+            }
+        }
+        clear();
+        completedRecords.clear();
+        expectedRecords = null;
+        lastRow = -1;
+        lastNodeId = null;
+        rowsFinished = false;
+        return true;
+    }
+}
@@ -0,0 +1,304 @@
+package de.intranda.goobi.plugins;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Counters and timers of the import phases, registered as MBean {@code de.intranda.goobi.plugins:type=ImportMetrics}. The values of all imports
+ * are added up, so the attributes show where the time of the imports is spent. Some phases contain others: the row scan contains the node creation
+ * and the ead metadata of the rows.
+ *
+ * The durations of each phase are stored in a histogram with eight buckets for each power of two, the percentiles are accurate to 12.5%.
+ */
+@Log4j2
+public class ImportMetrics implements ImportMetricsMBean {
+
+    public static final String OBJECT_NAME = "de.intranda.goobi.plugins:type=ImportMetrics";
+
+    private static final ImportMetrics INSTANCE = new ImportMetrics();
+
+    public enum Phase {
+        WORKBOOK_OPEN,
+        HEADER_PARSE,
+        ROW_SCAN,
+        FIND_ELEMENT,
+        NODE_CREATION,
+        EAD_METADATA,
+        METS_BUILD,
+        METS_WRITE,
+        IMAGE_FOLDER_SCAN,
+        IMAGE_COPY
+    }
+
+    private final Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder nodesCreated = new LongAdder();
+    private final LongAdder recordsCreated = new LongAdder();
+    private final LongAdder metsFilesWritten = new LongAdder();
+    private final LongAdder imagesCopied = new LongAdder();
+    private final LongAdder bytesCopied = new LongAdder();
+    // duration of the image copy pipelines, from their start until all images were copied
+    private final LongAdder copyNanos = new LongAdder();
+
+    private ImportMetrics() {
+        for (Phase phase : Phase.values()) {
+            timers.put(phase, new Timer());
+        }
+        register();
+    }
+
+    /**
+     * @return the metrics of all imports
+     */
+    public static ImportMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * register the MBean, an instance of a previous deployment of the plugin is replaced
+     */
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+        } catch (JMException | SecurityException e) {
+            log.error("Cannot register the import metrics", e);
+        }
+    }
+
+    /**
+     * @return the start time of a phase, pass it to {@link #record(Phase, long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * a phase was finished
+     *
+     * @param phase the phase
+     * @param start the value returned by {@link #start()}
+     */
+    public void record(Phase phase, long start) {
+        timers.get(phase).record(System.nanoTime() - start);
+    }
+
+    public void rowRead() {
+        rowsRead.increment();
+    }
+
+    public void nodeCreated() {
+        nodesCreated.increment();
+    }
+
+    public void recordCreated() {
+        recordsCreated.increment();
+    }
+
+    public void metsFileWritten() {
+        metsFilesWritten.increment();
+    }
+
+    /**
+     * @param bytes size of the copied image
+     */
+    public void imageCopied(long bytes) {
+        imagesCopied.increment();
+        bytesCopied.add(bytes);
+    }
+
+    /**
+     * @param nanos duration of an image copy pipeline
+     */
+    public void copyFinished(long nanos) {
+        copyNanos.add(nanos);
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    @Override
+    public long getNodesCreated() {
+        return nodesCreated.sum();
+    }
+
+    @Override
+    public long getRecordsCreated() {
+        return recordsCreated.sum();
+    }
+
+    @Override
+    public long getMetsFilesWritten() {
+        return metsFilesWritten.sum();
+    }
+
+    @Override
+    public long getImagesCopied() {
+        return imagesCopied.sum();
+    }
+
+    @Override
+    public long getBytesCopied() {
+        return bytesCopied.sum();
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        return perSecond(rowsRead.sum(), timers.get(Phase.ROW_SCAN).totalNanos.sum());
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        return perSecond(nodesCreated.sum(), timers.get(Phase.ROW_SCAN).totalNanos.sum());
+    }
+
+    @Override
+    public double getBytesCopiedPerSecond() {
+        return perSecond(bytesCopied.sum(), copyNanos.sum());
+    }
+
+    @Override
+    public double getMetsWriteP99Millis() {
+        return timers.get(Phase.METS_WRITE).getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public String[] getPhaseSummary() {
+        String[] lines = new String[timers.size()];
+        int i = 0;
+        for (Map.Entry<Phase, Timer> entry : timers.entrySet()) {
+            Timer timer = entry.getValue();
+            long count = timer.count.sum();
+            double total = timer.totalNanos.sum() / 1e6;
+            lines[i++] = String.format(Locale.ROOT, "%s: count=%d total=%.1fms mean=%.3fms p99=%.3fms max=%.3fms", entry.getKey(), count, total,
+                    count == 0 ? 0 : total / count, timer.getPercentile(99) / 1e6, timer.maxNanos.get() / 1e6);
+        }
+        return lines;
+    }
+
+    @Override
+    public double getTotalMillis(String phase) {
+        return timers.get(Phase.valueOf(phase)).totalNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getPercentileMillis(String phase, double percentile) {
+        return timers.get(Phase.valueOf(phase)).getPercentile(percentile) / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+        rowsRead.reset();
+        nodesCreated.reset();
+        recordsCreated.reset();
+        metsFilesWritten.reset();
+        imagesCopied.reset();
+        bytesCopied.reset();
+        copyNanos.reset();
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos == 0 ? 0 : count / (nanos / 1e9);
+    }
+
+    /**
+     * number, total and distribution of the durations of a phase
+     */
+    static class Timer {
+
+        // values below 8 ns use their own bucket, larger values are split into 8 buckets for each power of two
+        private static final int SUB_BUCKETS = 8;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulate(value);
+            buckets.incrementAndGet(getBucket(value));
+        }
+
+        static int getBucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+            return (exponent - 2) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * @return the largest value of a bucket
+         */
+        static long getUpperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + 2;
+            int subBucket = bucket % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - 3)) - 1;
+        }
+
+        /**
+         * @param percentile the percentile, 0-100
+         * @return the upper bound of the bucket that contains the percentile, in nanoseconds
+         */
+        long getPercentile(double percentile) {
+            long total = 0;
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, rank)) {
+                    return Math.min(getUpperBound(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+        }
+    }
+}
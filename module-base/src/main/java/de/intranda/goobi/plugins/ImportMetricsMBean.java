@@ -0,0 +1,48 @@
+package de.intranda.goobi.plugins;
+
+/**
+ * Management interface of the {@link ImportMetrics}. All values are collected since the start of the application or the last reset, times are
+ * returned in milliseconds.
+ */
+public interface ImportMetricsMBean {
+
+    long getRowsRead();
+
+    long getNodesCreated();
+
+    long getRecordsCreated();
+
+    long getMetsFilesWritten();
+
+    long getImagesCopied();
+
+    long getBytesCopied();
+
+    double getRowsPerSecond();
+
+    double getNodesPerSecond();
+
+    double getBytesCopiedPerSecond();
+
+    double getMetsWriteP99Millis();
+
+    /**
+     * @return one line for each phase with number of calls, total, mean, p99 and maximum time
+     */
+    String[] getPhaseSummary();
+
+    /**
+     * @param phase name of the phase, e.g. METS_WRITE
+     * @return total time of the phase
+     */
+    double getTotalMillis(String phase);
+
+    /**
+     * @param phase name of the phase, e.g. METS_WRITE
+     * @param percentile the percentile, 0-100
+     * @return upper bound of the duration of the given percentile of all calls
+     */
+    double getPercentileMillis(String phase, double percentile);
+
+    void reset();
+}
@@ -0,0 +1,45 @@
+package de.intranda.goobi.plugins;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a single record. The duration covers the METS file and the start of the image copy, the images themselves are
+ * copied in the background.
+ */
+@Name("de.intranda.goobi.plugins.ImportRecord")
+@Label("Import Record")
+@Category({ "Goobi", "Crown Import" })
+@Description("The METS file of a record was created")
+@StackTrace(false)
+class ImportRecordEvent extends jdk.jfr.Event {
+
+    @Label("Record Id")
+    String recordId;
+
+    @Label("Process Title")
+    String processTitle;
+
+    @Label("Result")
+    String result;
+
+    @Label("METS Build")
+    @Timespan(Timespan.NANOSECONDS)
+    long metsBuild;
+
+    @Label("METS Write")
+    @Timespan(Timespan.NANOSECONDS)
+    long metsWrite;
+
+    @Label("Images")
+    int images;
+
+    @Label("Image Size")
+    @DataAmount(DataAmount.BYTES)
+    long imageBytes;
+}
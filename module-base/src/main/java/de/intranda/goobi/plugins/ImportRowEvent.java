@@ -0,0 +1,40 @@
+package de.intranda.goobi.plugins;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a single row of the sheet. The duration covers reading the row, creating the ead node and adding its metadata.
+ */
+@Name("de.intranda.goobi.plugins.ImportRow")
+@Label("Import Row")
+@Category({ "Goobi", "Crown Import" })
+@Description("A row of the import sheet was read and its ead node was created")
+@StackTrace(false)
+class ImportRowEvent extends jdk.jfr.Event {
+
+    @Label("Row Number")
+    int rowNumber;
+
+    @Label("Hierarchy")
+    @Description("Index of the first column with content")
+    int hierarchy;
+
+    @Label("Columns")
+    int columns;
+
+    @Label("Process")
+    @Description("A process is created for this row")
+    boolean process;
+
+    @Label("Node Id")
+    String nodeId;
+
+    @Label("Node Creation")
+    @Timespan(Timespan.NANOSECONDS)
+    long nodeCreation;
+}
@@ -0,0 +1,289 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.lang3.StringUtils;
+
+import ugh.dl.Corporate;
+import ugh.dl.DigitalDocument;
+import ugh.dl.DocStruct;
+import ugh.dl.Metadata;
+import ugh.dl.MetadataGroup;
+import ugh.dl.NamePart;
+import ugh.dl.Person;
+
+/**
+ * Writes the METS file of a record with StAX, without building the DOM tree of {@link ugh.fileformats.mets.MetsMods}. Only the documents created by
+ * the import are supported: a logical element with metadata, persons, corporates and groups, and a physical element with the image path. Both
+ * elements have no children, there are no files and no references between them, other documents are rejected. Persons and corporates without a
+ * name are not written.
+ *
+ * The file is not identical to the file written by MetsMods. It contains the same elements, attributes and values, but the header, the generated
+ * ids, the order of the attributes and the indentation differ. {@code MetsStreamWriterTest} compares the files of both writers in this way.
+ */
+public final class MetsStreamWriter {
+
+    private static final String METS = "http://www.loc.gov/METS/";
+    private static final String MODS = "http://www.loc.gov/mods/v3";
+    private static final String GOOBI = "http://meta.goobi.org/v1.5.1/";
+    private static final String XLINK = "http://www.w3.org/1999/xlink";
+    private static final String XSI = "http://www.w3.org/2001/XMLSchema-instance";
+
+    private static final String SCHEMA_LOCATION = "http://www.loc.gov/mods/v3 http://www.loc.gov/standards/mods/mods-3-3.xsd "
+            + "http://www.loc.gov/METS/ http://www.loc.gov/standards/mets/version17/mets.v1-7.xsd";
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private static final int BUFFER_SIZE = 1 << 14;
+
+    // the factory is thread safe once it is configured
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private MetsStreamWriter() {
+    }
+
+    /**
+     * write the METS file of a document
+     *
+     * @param document the document, created by {@link CrownImportPlugin#createMetsFile(RowData, ColumnBindingPlan, List)}
+     * @param file the METS file
+     * @throws IOException
+     * @throws XMLStreamException
+     * @throws IllegalArgumentException if the document contains elements that are not supported
+     */
+    public static void write(DigitalDocument document, Path file) throws IOException, XMLStreamException {
+        checkSupported(document);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+            try {
+                write(document, writer);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * reject documents with structure elements, files or references, they would be missing in the file
+     */
+    private static void checkSupported(DigitalDocument document) {
+        if (document.getFileSet() != null && isNotEmpty(document.getFileSet().getAllFiles())) {
+            throw new IllegalArgumentException("Documents with files are not supported");
+        }
+        for (DocStruct docStruct : new DocStruct[] { document.getLogicalDocStruct(), document.getPhysicalDocStruct() }) {
+            if (docStruct != null && (isNotEmpty(docStruct.getAllChildren()) || isNotEmpty(docStruct.getAllToReferences()))) {
+                throw new IllegalArgumentException("Structure element " + docStruct.getType().getName() + " has children or references");
+            }
+        }
+    }
+
+    private static void write(DigitalDocument document, XMLStreamWriter writer) throws XMLStreamException {
+        DocStruct logical = document.getLogicalDocStruct();
+        DocStruct physical = document.getPhysicalDocStruct();
+        boolean logicalMetadata = hasMetadata(logical);
+        boolean physicalMetadata = hasMetadata(physical);
+
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement("mets", "mets", METS);
+        writer.writeNamespace("mets", METS);
+        writer.writeNamespace("mods", MODS);
+        writer.writeNamespace("goobi", GOOBI);
+        writer.writeNamespace("xlink", XLINK);
+        writer.writeNamespace("xsi", XSI);
+        writer.writeAttribute("xsi", XSI, "schemaLocation", SCHEMA_LOCATION);
+
+        writeHeader(writer);
+        if (logicalMetadata) {
+            writeDmdSec(writer, "DMDLOG_0000", logical);
+        }
+        if (physicalMetadata) {
+            writeDmdSec(writer, "DMDPHYS_0000", physical);
+        }
+        writeStructMap(writer, "LOGICAL", "LOG_0000", logicalMetadata ? "DMDLOG_0000" : null, logical);
+        if (physical != null) {
+            writeStructMap(writer, "PHYSICAL", "PHYS_0000", physicalMetadata ? "DMDPHYS_0000" : null, physical);
+        }
+
+        writer.writeEndElement();
+        writer.writeEndDocument();
+    }
+
+    private static void writeHeader(XMLStreamWriter writer) throws XMLStreamException {
+        String agent = "ugh";
+        String version = DigitalDocument.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            agent = agent + "-" + version;
+        }
+        writer.writeStartElement("mets", "metsHdr", METS);
+        writer.writeAttribute("CREATEDATE", DATE_FORMAT.format(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS)));
+        writer.writeStartElement("mets", "agent", METS);
+        writer.writeAttribute("OTHERTYPE", "SOFTWARE");
+        writer.writeAttribute("ROLE", "CREATOR");
+        writer.writeAttribute("TYPE", "OTHER");
+        writeElement(writer, "mets", METS, "name", agent);
+        writeElement(writer, "mets", METS, "note", agent);
+        writer.writeEndElement();
+        writer.writeEndElement();
+    }
+
+    private static void writeDmdSec(XMLStreamWriter writer, String id, DocStruct docStruct) throws XMLStreamException {
+        writer.writeStartElement("mets", "dmdSec", METS);
+        writer.writeAttribute("ID", id);
+        writer.writeStartElement("mets", "mdWrap", METS);
+        writer.writeAttribute("MDTYPE", "MODS");
+        writer.writeStartElement("mets", "xmlData", METS);
+        writer.writeStartElement("mods", "mods", MODS);
+        writer.writeStartElement("mods", "extension", MODS);
+        writer.writeStartElement("goobi", "goobi", GOOBI);
+
+        if (docStruct.getAllMetadata() != null) {
+            for (Metadata metadata : docStruct.getAllMetadata()) {
+                writeMetadata(writer, metadata);
+            }
+        }
+        if (docStruct.getAllPersons() != null) {
+            for (Person person : docStruct.getAllPersons()) {
+                writePerson(writer, person);
+            }
+        }
+        if (docStruct.getAllCorporates() != null) {
+            for (Corporate corporate : docStruct.getAllCorporates()) {
+                writeCorporate(writer, corporate);
+            }
+        }
+        if (docStruct.getAllMetadataGroups() != null) {
+            for (MetadataGroup group : docStruct.getAllMetadataGroups()) {
+                writeGroup(writer, group);
+            }
+        }
+
+        // goobi, extension, mods, xmlData, mdWrap, dmdSec
+        for (int i = 0; i < 6; i++) {
+            writer.writeEndElement();
+        }
+    }
+
+    private static void writeMetadata(XMLStreamWriter writer, Metadata metadata) throws XMLStreamException {
+        if (StringUtils.isEmpty(metadata.getValue())) {
+            return;
+        }
+        writer.writeStartElement("goobi", "metadata", GOOBI);
+        writeAttribute(writer, "authority", metadata.getAuthorityID());
+        writeAttribute(writer, "authorityURI", metadata.getAuthorityURI());
+        writer.writeAttribute("name", metadata.getType().getName());
+        writeAttribute(writer, "valueURI", metadata.getAuthorityValue());
+        writer.writeCharacters(metadata.getValue());
+        writer.writeEndElement();
+    }
+
+    private static void writePerson(XMLStreamWriter writer, Person person) throws XMLStreamException {
+        if (StringUtils.isAllEmpty(person.getFirstname(), person.getLastname(), person.getDisplayname())) {
+            return;
+        }
+        writer.writeStartElement("goobi", "metadata", GOOBI);
+        writer.writeAttribute("name", person.getType().getName());
+        writer.writeAttribute("type", "person");
+        writeGoobiElement(writer, "firstName", person.getFirstname());
+        writeGoobiElement(writer, "lastName", person.getLastname());
+        writeAuthority(writer, person);
+        writeGoobiElement(writer, "displayName", person.getDisplayname());
+        writer.writeEndElement();
+    }
+
+    private static void writeCorporate(XMLStreamWriter writer, Corporate corporate) throws XMLStreamException {
+        if (StringUtils.isEmpty(corporate.getMainName())) {
+            return;
+        }
+        writer.writeStartElement("goobi", "metadata", GOOBI);
+        writer.writeAttribute("name", corporate.getType().getName());
+        writer.writeAttribute("type", "corporate");
+        writeGoobiElement(writer, "mainName", corporate.getMainName());
+        if (corporate.getSubNames() != null) {
+            for (NamePart subName : corporate.getSubNames()) {
+                writeGoobiElement(writer, "subName", subName.getValue());
+            }
+        }
+        writeGoobiElement(writer, "partName", corporate.getPartName());
+        writeAuthority(writer, corporate);
+        writer.writeEndElement();
+    }
+
+    private static void writeGroup(XMLStreamWriter writer, MetadataGroup group) throws XMLStreamException {
+        writer.writeStartElement("goobi", "metadata", GOOBI);
+        writer.writeAttribute("name", group.getType().getName());
+        writer.writeAttribute("type", "group");
+        for (Metadata metadata : group.getMetadataList()) {
+            writeMetadata(writer, metadata);
+        }
+        if (group.getPersonList() != null) {
+            for (Person person : group.getPersonList()) {
+                writePerson(writer, person);
+            }
+        }
+        if (group.getCorporateList() != null) {
+            for (Corporate corporate : group.getCorporateList()) {
+                writeCorporate(writer, corporate);
+            }
+        }
+        writer.writeEndElement();
+    }
+
+    private static void writeAuthority(XMLStreamWriter writer, Metadata metadata) throws XMLStreamException {
+        writeGoobiElement(writer, "authorityID", metadata.getAuthorityID());
+        writeGoobiElement(writer, "authorityURI", metadata.getAuthorityURI());
+        writeGoobiElement(writer, "authorityValue", metadata.getAuthorityValue());
+    }
+
+    private static void writeStructMap(XMLStreamWriter writer, String type, String id, String dmdId, DocStruct docStruct)
+            throws XMLStreamException {
+        writer.writeStartElement("mets", "structMap", METS);
+        writer.writeAttribute("TYPE", type);
+        writer.writeEmptyElement("mets", "div", METS);
+        if (dmdId != null) {
+            writer.writeAttribute("DMDID", dmdId);
+        }
+        writer.writeAttribute("ID", id);
+        writer.writeAttribute("TYPE", docStruct.getType().getName());
+        writer.writeEndElement();
+    }
+
+    private static boolean hasMetadata(DocStruct docStruct) {
+        return docStruct != null && (isNotEmpty(docStruct.getAllMetadata()) || isNotEmpty(docStruct.getAllPersons())
+                || isNotEmpty(docStruct.getAllCorporates()) || isNotEmpty(docStruct.getAllMetadataGroups()));
+    }
+
+    private static boolean isNotEmpty(List<?> list) {
+        return list != null && !list.isEmpty();
+    }
+
+    private static void writeGoobiElement(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        if (StringUtils.isNotEmpty(value)) {
+            writeElement(writer, "goobi", GOOBI, name, value);
+        }
+    }
+
+    private static void writeElement(XMLStreamWriter writer, String prefix, String namespace, String name, String value)
+            throws XMLStreamException {
+        writer.writeStartElement(prefix, name, namespace);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    private static void writeAttribute(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        if (StringUtils.isNotEmpty(value)) {
+            writer.writeAttribute(name, value);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package de.intranda.goobi.plugins;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Returns the readers of the selected sheets of a workbook in the order of the workbook. If more than one sheet is selected, the rows of the current
+ * and the next sheets are decoded in background threads while the rows of the current sheet are imported. The decoded rows of each sheet are passed
+ * through a queue of {@value #QUEUED_ROWS} rows, if it is full, the decoding thread waits until the import took the next row. So at most this
+ * number of rows per thread is kept in memory, regardless of the size of the sheets.
+ *
+ * A single sheet is read directly from the file, without decoding it in advance.
+ */
+public class MultiSheetReader implements Closeable {
+
+    // number of decoded rows of a sheet that wait in memory
+    static final int QUEUED_ROWS = 1000;
+
+    /**
+     * opens the reader of a single sheet
+     */
+    @FunctionalInterface
+    interface SheetOpener {
+        SheetRowReader open(int sheetIndex) throws IOException;
+    }
+
+    private final List<Integer> sheets;
+    private final SheetOpener opener;
+
+    // the workbook shared by the readers, closed together with this reader, can be null
+    private final Closeable workbook;
+
+    // null, if only one sheet is read
+    private final ExecutorService executor;
+    private final int threads;
+
+    // sheets that are decoded, in the order of the workbook
+    private final Deque<QueuedSheetReader> pending = new ArrayDeque<>();
+
+    // position of the next sheet to open or decode
+    private int nextSheet;
+
+    /**
+     * @param sheets indices of the sheets to read, in the order of the workbook
+     * @param threads number of sheets that are decoded in parallel
+     * @param opener opens the reader of a sheet
+     * @param workbook workbook that is used by the opener, it is closed by {@link #close()}. Can be null
+     */
+    MultiSheetReader(List<Integer> sheets, int threads, SheetOpener opener, Closeable workbook) {
+        this.sheets = sheets;
+        this.opener = opener;
+        this.workbook = workbook;
+        this.threads = Math.max(1, threads);
+        if (sheets.size() > 1) {
+            executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+                Thread thread = new Thread(runnable, "crown-sheet-reader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            while (pending.size() < this.threads && submitNextSheet()) {
+                // start decoding the first sheets
+            }
+        } else {
+            executor = null;
+        }
+    }
+
+    public boolean hasNext() {
+        return executor == null ? nextSheet < sheets.size() : !pending.isEmpty();
+    }
+
+    /**
+     * get the reader of the next sheet, the caller must close it
+     *
+     * @return the reader
+     */
+    public SheetRowReader next() throws IOException {
+        if (executor == null) {
+            return opener.open(sheets.get(nextSheet++));
+        }
+        QueuedSheetReader reader = pending.poll();
+        if (reader == null) {
+            throw new NoSuchElementException();
+        }
+        // the thread of this sheet is already running, the next sheet starts as soon as a thread is free
+        submitNextSheet();
+        return reader;
+    }
+
+    private boolean submitNextSheet() {
+        if (nextSheet >= sheets.size()) {
+            return false;
+        }
+        int sheetIndex = sheets.get(nextSheet++);
+        QueuedSheetReader reader = new QueuedSheetReader();
+        reader.task = executor.submit(() -> reader.decode(opener, sheetIndex));
+        pending.add(reader);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (executor != null) {
+                for (QueuedSheetReader reader : pending) {
+                    reader.close();
+                }
+                pending.clear();
+                executor.shutdownNow();
+                // the workbook must not be closed while a sheet is still decoded
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (workbook != null) {
+                workbook.close();
+            }
+        }
+    }
+
+    /**
+     * returns the rows of a sheet that is decoded in a background thread
+     */
+    private static class QueuedSheetReader implements SheetRowReader {
+
+        // marks the end of the sheet, compared by identity
+        private static final SheetRow END = new SheetRow(-1, new String[0], 0, null, null, false);
+
+        private final BlockingQueue<SheetRow> rows = new ArrayBlockingQueue<>(QUEUED_ROWS);
+
+        private Future<?> task;
+
+        private SheetRow nextRow;
+
+        private boolean finished;
+
+        // error of the decoding thread
+        private volatile IOException failure;
+
+        /**
+         * decode the rows of the sheet and pass them to the queue, runs in the background thread
+         */
+        private void decode(SheetOpener opener, int sheetIndex) {
+            try (SheetRowReader reader = opener.open(sheetIndex)) {
+                while (reader.hasNext()) {
+                    put(reader.next());
+                }
+            } catch (CancellationException e) {
+                // the reader was closed before the sheet was read completely
+                return;
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException(e);
+            }
+            try {
+                put(END);
+            } catch (CancellationException e) {
+                // the reader was closed
+            }
+        }
+
+        private void put(SheetRow row) {
+            try {
+                rows.put(row);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("The sheet reader was closed");
+            }
+        }
+
+        /**
+         * @throws UncheckedIOException if the sheet could not be decoded, after all rows before the error were returned
+         */
+        @Override
+        public boolean hasNext() {
+            if (nextRow != null) {
+                return true;
+            }
+            if (finished) {
+                return false;
+            }
+            try {
+                SheetRow row = rows.take();
+                if (row == END) {
+                    finished = true;
+                    if (failure != null) {
+                        throw new UncheckedIOException(failure);
+                    }
+                    return false;
+                }
+                nextRow = row;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                return false;
+            }
+        }
+
+        @Override
+        public SheetRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SheetRow row = nextRow;
+            nextRow = null;
+            return row;
+        }
+
+        /**
+         * stop the decoding thread, if the sheet was not read completely
+         */
+        @Override
+        public void close() {
+            finished = true;
+            if (task != null) {
+                task.cancel(true);
+            }
+            rows.clear();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package de.intranda.goobi.plugins;
+
+import org.goobi.production.importer.ImportObject;
+import org.goobi.production.importer.Record;
+
+import lombok.Getter;
+
+/**
+ * A record of a chunked import. Its METS file was written while the file was read, the import object is returned when goobi creates the process.
+ */
+class PreparedRecord extends Record {
+
+    @Getter
+    private final ImportObject importObject;
+
+    PreparedRecord(Record rec, ImportObject importObject) {
+        setId(rec.getId());
+        setData(rec.getData());
+        setObject(rec.getObject());
+        this.importObject = importObject;
+    }
+}
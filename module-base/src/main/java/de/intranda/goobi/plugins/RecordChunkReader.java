@@ -0,0 +1,158 @@
+package de.intranda.goobi.plugins;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+import org.goobi.production.importer.Record;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Reads the records in a background thread and returns them in chunks of a fixed size. Only a limited number of chunks is kept in the queue, if it
+ * is full, the reading thread waits until the next chunk was taken.
+ *
+ * The reader must be closed if the chunks are not read until the end, otherwise the reading thread waits forever. If reading fails, the chunks
+ * that were read before are returned, then {@link #hasNext()} throws the error.
+ */
+@Log4j2
+public class RecordChunkReader implements Iterator<List<Record>>, Closeable {
+
+    // marks the end of the records, compared by identity
+    private static final List<Record> END = new ArrayList<>(0);
+
+    private final int chunkSize;
+
+    private final BlockingQueue<List<Record>> queue;
+
+    private Thread readerThread;
+
+    private List<Record> nextChunk;
+
+    private boolean finished;
+
+    private volatile boolean closed;
+
+    // error of the reading thread
+    private volatile RuntimeException failure;
+
+    /**
+     * @param chunkSize number of records in a chunk
+     * @param window number of chunks that are kept in the queue
+     */
+    RecordChunkReader(int chunkSize, int window) {
+        this.chunkSize = Math.max(1, chunkSize);
+        queue = new ArrayBlockingQueue<>(Math.max(1, window));
+    }
+
+    /**
+     * start the reading thread
+     *
+     * @param reader reads the records and passes each of them to the given consumer
+     */
+    void start(Consumer<Consumer<Record>> reader) {
+        readerThread = new Thread(() -> {
+            List<Record> chunk = new ArrayList<>(chunkSize);
+            try {
+                reader.accept(rec -> {
+                    chunk.add(rec);
+                    if (chunk.size() >= chunkSize) {
+                        put(new ArrayList<>(chunk));
+                        chunk.clear();
+                    }
+                });
+                if (!chunk.isEmpty()) {
+                    put(chunk);
+                }
+            } catch (CancellationException e) {
+                log.info("Reading of the records was cancelled");
+            } catch (RuntimeException e) {
+                log.error(e);
+                failure = e;
+            } finally {
+                if (!closed) {
+                    put(END);
+                }
+            }
+        }, "crown-record-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    private void put(List<Record> chunk) {
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The record reader was closed");
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the reading thread failed, after all chunks before the error were returned
+     */
+    @Override
+    public boolean hasNext() {
+        if (nextChunk != null) {
+            return true;
+        }
+        if (finished) {
+            checkFailure();
+            return false;
+        }
+        if (closed) {
+            return false;
+        }
+        try {
+            List<Record> chunk = queue.take();
+            if (chunk == END) {
+                finished = true;
+                checkFailure();
+                return false;
+            }
+            nextChunk = chunk;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            return false;
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Reading of the records failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    @Override
+    public List<Record> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<Record> chunk = nextChunk;
+        nextChunk = null;
+        return chunk;
+    }
+
+    /**
+     * stop the reading thread, rows that were not read yet are not imported
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (readerThread != null && readerThread.isAlive()) {
+            readerThread.interrupt();
+        }
+        queue.clear();
+    }
+}
@@ -0,0 +1,260 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Hash of each imported record, used to find the rows that were changed since the last import. The hash covers the cell values of the row, the
+ * header of the sheet, the configuration and name, size and modification time of the images. The manifest is stored as text file with one line
+ * per record: the record id and the hash, separated by a tab.
+ *
+ * The processes are created by goobi after the import objects were returned, so the hashes of a new import are pending at first. They are kept
+ * in a second file together with the process title, one line per record with the title, the record id and the hash. Before the next import,
+ * the pending hashes of records whose process exists are moved into the manifest, all others are discarded and the records are imported again.
+ */
+@Log4j2
+public class RecordManifest {
+
+    private final Path manifestFile;
+    private final Path pendingFile;
+
+    private final Map<String, String> hashes = new ConcurrentHashMap<>();
+
+    // records of the last import whose process may not exist yet
+    private final Map<String, PendingRecord> pendingRecords = new ConcurrentHashMap<>();
+
+    private RecordManifest(Path manifestFile) {
+        this.manifestFile = manifestFile;
+        pendingFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".pending");
+    }
+
+    /**
+     * load the manifest file, an empty manifest is created if the file does not exist
+     *
+     * @param manifestFile the file
+     * @return the manifest
+     */
+    public static RecordManifest load(Path manifestFile) {
+        RecordManifest manifest = new RecordManifest(manifestFile);
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int pos = line.lastIndexOf('\t');
+                if (pos > 0) {
+                    manifest.hashes.put(line.substring(0, pos), line.substring(pos + 1));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // first import
+        } catch (IOException e) {
+            log.error("Cannot read manifest {}, all records are imported", manifestFile, e);
+            manifest.hashes.clear();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifest.pendingFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int first = line.indexOf('\t');
+                int last = line.lastIndexOf('\t');
+                if (first > 0 && last > first) {
+                    PendingRecord pending = new PendingRecord(line.substring(0, first), line.substring(last + 1));
+                    manifest.pendingRecords.put(line.substring(first + 1, last), pending);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // no pending records
+        } catch (IOException e) {
+            log.error("Cannot read manifest {}, the records of the last import are imported again", manifest.pendingFile, e);
+            manifest.pendingRecords.clear();
+        }
+        return manifest;
+    }
+
+    /**
+     * check if a record was imported before with the same data
+     *
+     * @param id record id
+     * @param hash current hash of the record
+     * @return true, if the manifest contains the same hash for this record
+     */
+    public boolean isUnchanged(String id, String hash) {
+        return hash.equals(hashes.get(id));
+    }
+
+    /**
+     * @param id record id
+     * @return true, if a process was created for the record by a previous import
+     */
+    public boolean contains(String id) {
+        return hashes.containsKey(id);
+    }
+
+    /**
+     * remember the hash of an imported record, the hash is used once the process was created
+     *
+     * @param id record id
+     * @param hash hash of the record
+     * @param processTitle title of the process that is created for the record
+     */
+    public void putPending(String id, String hash, String processTitle) {
+        pendingRecords.put(id, new PendingRecord(processTitle, hash));
+    }
+
+    /**
+     * @return the process titles of the pending records
+     */
+    public Set<String> getPendingTitles() {
+        Set<String> titles = new HashSet<>();
+        for (PendingRecord pending : pendingRecords.values()) {
+            titles.add(pending.processTitle);
+        }
+        return titles;
+    }
+
+    /**
+     * move the hashes of the pending records whose process was created into the manifest, the other pending records are discarded
+     *
+     * @param existingTitles the pending process titles that exist
+     */
+    public void confirmPending(Set<String> existingTitles) {
+        for (Map.Entry<String, PendingRecord> entry : pendingRecords.entrySet()) {
+            if (existingTitles.contains(entry.getValue().processTitle)) {
+                hashes.put(entry.getKey(), entry.getValue().hash);
+            } else {
+                // the process was not created, the record is imported again
+                hashes.remove(entry.getKey());
+            }
+        }
+        pendingRecords.clear();
+    }
+
+    /**
+     * write the manifest, the file is replaced atomically
+     */
+    public synchronized void save() {
+        Path tempFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(manifestFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> entry : new TreeMap<>(hashes).entrySet()) {
+                    writer.write(entry.getKey());
+                    writer.write('\t');
+                    writer.write(entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Cannot write manifest {}", manifestFile, e);
+        }
+        savePending();
+    }
+
+    private void savePending() {
+        Path tempFile = pendingFile.resolveSibling(pendingFile.getFileName() + ".tmp");
+        try {
+            if (pendingRecords.isEmpty()) {
+                Files.deleteIfExists(pendingFile);
+                return;
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, PendingRecord> entry : new TreeMap<>(pendingRecords).entrySet()) {
+                    writer.write(entry.getValue().processTitle);
+                    writer.write('\t');
+                    writer.write(entry.getKey());
+                    writer.write('\t');
+                    writer.write(entry.getValue().hash);
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, pendingFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Cannot write manifest {}", pendingFile, e);
+        }
+    }
+
+    /**
+     * calculate the hash of a record
+     *
+     * @param data cell values of the row
+     * @param images images of the record, can be null
+     * @param configurationVersion modification time of the configuration, a changed configuration imports all records again
+     * @return hex encoded SHA-256 hash
+     */
+    public static String computeHash(RowData data, List<Path> images, long configurationVersion) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // available in every java runtime
+            throw new IllegalStateException(e);
+        }
+        update(digest, Long.toString(configurationVersion));
+        for (Map.Entry<String, Integer> column : new TreeMap<>(data.getHeader().asMap()).entrySet()) {
+            update(digest, column.getKey());
+            update(digest, column.getValue().toString());
+        }
+        update(digest, data.getFirstValue());
+        update(digest, data.getSecondValue());
+        for (int i = 0; i < data.getNumberOfColumns(); i++) {
+            update(digest, data.get(i));
+        }
+        if (images != null) {
+            for (Path image : images) {
+                update(digest, image.getFileName().toString());
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(image, BasicFileAttributes.class);
+                    update(digest, Long.toString(attributes.size()));
+                    update(digest, Long.toString(attributes.lastModifiedTime().toMillis()));
+                } catch (IOException e) {
+                    // file was removed, the hash differs from the previous one
+                    update(digest, "-");
+                }
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * add a value with its length, so "ab" + "c" differs from "a" + "bc" and null from ""
+     */
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int length = value == null ? -1 : bytes.length;
+        digest.update(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length });
+        digest.update(bytes);
+    }
+
+    /**
+     * hash and process title of a record whose process may not exist yet
+     */
+    private static final class PendingRecord {
+        private final String processTitle;
+        private final String hash;
+
+        private PendingRecord(String processTitle, String hash) {
+            this.processTitle = processTitle;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package de.intranda.goobi.plugins;
+
+import lombok.Getter;
+
+/**
+ * The cell values of a row that is used to create a process. The values are stored in an array indexed by the column number, the column names
+ * are resolved with the {@link HeaderIndex} that is shared by all rows of the sheet.
+ */
+public class RowData {
+
+    @Getter
+    private final HeaderIndex header;
+
+    private final String[] values;
+
+    // value of the first and second column with content
+    @Getter
+    private final String firstValue;
+    @Getter
+    private final String secondValue;
+
+    public RowData(HeaderIndex header, String[] values, String firstValue, String secondValue) {
+        this.header = header;
+        this.values = values;
+        this.firstValue = firstValue;
+        this.secondValue = secondValue;
+    }
+
+    /**
+     * get the value of a column
+     *
+     * @param column the column index
+     * @return the value or null, if the row does not contain the column
+     */
+    public String get(int column) {
+        if (column < 0 || column >= values.length) {
+            return null;
+        }
+        return values[column];
+    }
+
+    /**
+     * get the value of a column
+     *
+     * @param columnName name of the column in the header row
+     * @return the value or null, if the column does not exist
+     */
+    public String get(String columnName) {
+        return get(header.indexOf(columnName));
+    }
+
+    public boolean hasColumn(int column) {
+        return column >= 0 && column < values.length;
+    }
+
+    /**
+     * check if the column exists in the header row and the row contains a cell for it
+     *
+     * @param columnName name of the column in the header row
+     * @return true, if the column exists
+     */
+    public boolean hasColumn(String columnName) {
+        return hasColumn(header.indexOf(columnName));
+    }
+
+    public int getNumberOfColumns() {
+        return values.length;
+    }
+}
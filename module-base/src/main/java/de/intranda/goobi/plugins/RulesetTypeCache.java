@@ -0,0 +1,76 @@
+package de.intranda.goobi.plugins;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import lombok.Getter;
+import ugh.dl.DocStructType;
+import ugh.dl.MetadataGroupType;
+import ugh.dl.MetadataType;
+import ugh.dl.Prefs;
+
+/**
+ * Resolves the names of the ruleset types. Each name is looked up once, unknown names are remembered as well, so roles taken from the cells don't
+ * search the ruleset again for every record.
+ */
+public class RulesetTypeCache {
+
+    @Getter
+    private final Prefs prefs;
+
+    private final Map<String, Optional<MetadataType>> metadataTypes = new ConcurrentHashMap<>();
+    private final Map<String, Optional<MetadataGroupType>> groupTypes = new ConcurrentHashMap<>();
+    private final Map<String, Optional<DocStructType>> docStructTypes = new ConcurrentHashMap<>();
+
+    public RulesetTypeCache(Prefs prefs) {
+        this.prefs = prefs;
+    }
+
+    /**
+     * @param name name of the metadata type
+     * @return the type or null, if the name is blank or unknown
+     */
+    public MetadataType getMetadataType(String name) {
+        if (StringUtils.isBlank(name)) {
+            return null;
+        }
+        return metadataTypes.computeIfAbsent(name, n -> {
+            synchronized (prefs) {
+                return Optional.ofNullable(prefs.getMetadataTypeByName(n));
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * @param name name of the group type
+     * @return the type or null, if the name is blank or unknown
+     */
+    public MetadataGroupType getGroupType(String name) {
+        if (StringUtils.isBlank(name)) {
+            return null;
+        }
+        return groupTypes.computeIfAbsent(name, n -> {
+            synchronized (prefs) {
+                return Optional.ofNullable(prefs.getMetadataGroupTypeByName(n));
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * @param name name of the structure type
+     * @return the type or null, if the name is blank or unknown
+     */
+    public DocStructType getDocStructType(String name) {
+        if (StringUtils.isBlank(name)) {
+            return null;
+        }
+        return docStructTypes.computeIfAbsent(name, n -> {
+            synchronized (prefs) {
+                return Optional.ofNullable(prefs.getDocStrctTypeByName(n));
+            }
+        }).orElse(null);
+    }
+}
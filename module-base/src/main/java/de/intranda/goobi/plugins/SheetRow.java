@@ -0,0 +1,92 @@
+package de.intranda.goobi.plugins;
+
+import java.util.function.IntPredicate;
+
+import org.apache.commons.lang3.StringUtils;
+
+import lombok.Getter;
+
+/**
+ * A single decoded row of the import sheet. Contains the cell values and the information the import needs to place the row within the hierarchy:
+ * the index of the first column with content, the first two values and the flag, if a process shall be created for this row.
+ */
+@Getter
+public class SheetRow {
+
+    // row number within the sheet, starting with 0
+    private final int rowNumber;
+
+    // cell values, missing cells are null, empty cells are an empty string
+    private final String[] values;
+
+    // index of the first column with content
+    private final int hierarchy;
+
+    private final String firstValue;
+    private final String secondValue;
+
+    // true, if the first value is formatted bold
+    private final boolean process;
+
+    public SheetRow(int rowNumber, String[] values, int hierarchy, String firstValue, String secondValue, boolean process) {
+        this.rowNumber = rowNumber;
+        this.values = values;
+        this.hierarchy = hierarchy;
+        this.firstValue = firstValue;
+        this.secondValue = secondValue;
+        this.process = process;
+    }
+
+    /**
+     * Create a new row from the cell values. The first column with content defines the hierarchy, the font of this cell is checked with the given
+     * predicate.
+     *
+     * @param rowNumber row number within the sheet
+     * @param values cell values
+     * @param boldColumn returns true, if the cell in the given column is formatted bold
+     * @return the row
+     */
+    public static SheetRow create(int rowNumber, String[] values, IntPredicate boldColumn) {
+        int hierarchy = 0;
+        String firstValue = null;
+        String secondValue = null;
+        boolean process = false;
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            if (StringUtils.isBlank(value)) {
+                // skip empty cell in order to find first column with content
+                continue;
+            }
+            if (firstValue == null) {
+                firstValue = value;
+                hierarchy = i;
+                process = boldColumn.test(i);
+            } else {
+                secondValue = value;
+                break;
+            }
+        }
+        return new SheetRow(rowNumber, values, hierarchy, firstValue, secondValue, process);
+    }
+
+    /**
+     * get the value of a column, missing cells are returned as empty string
+     *
+     * @param column the column index
+     * @return the value or an empty string
+     */
+    public String getValue(int column) {
+        if (column < 0 || column >= values.length || values[column] == null) {
+            return "";
+        }
+        return values[column];
+    }
+
+    public int getNumberOfColumns() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+}
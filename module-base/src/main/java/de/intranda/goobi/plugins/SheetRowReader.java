@@ -0,0 +1,11 @@
+package de.intranda.goobi.plugins;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Reads the rows of the import sheet one after another. Rows that exist in the sheet but don't contain any cell are returned as empty rows.
+ */
+public interface SheetRowReader extends Iterator<SheetRow>, Closeable {
+
+}
@@ -0,0 +1,281 @@
+package de.intranda.goobi.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.xml.sax.SAXException;
+
+/**
+ * Reads a sheet of a xlsx file without loading the workbook into memory. The sheet xml is parsed row by row, only the shared strings and
+ * the styles table are kept in memory. Formula cells return the result that was cached by the application that saved the file.
+ */
+public class StreamingRowReader implements SheetRowReader {
+
+    private OPCPackage pkg;
+    private ReadOnlySharedStringsTable sharedStrings;
+    private StylesTable styles;
+    private InputStream sheetStream;
+    private XMLStreamReader xml;
+
+    // font weight of each used cell style
+    private final Map<Integer, Boolean> boldStyles = new HashMap<>();
+
+    private SheetRow nextRow;
+
+    // number of the last parsed row, used for rows without reference
+    private int lastRowNumber = -1;
+
+    // re-used buffers for the current row
+    private String[] rowValues = new String[64];
+    private int[] rowStyles = new int[64];
+
+    public StreamingRowReader(File file) throws IOException {
+        this(file, 0);
+    }
+
+    /**
+     * @param file the xlsx file
+     * @param sheetIndex index of the sheet, starting with 0
+     */
+    public StreamingRowReader(File file, int sheetIndex) throws IOException {
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(pkg);
+            sharedStrings = new ReadOnlySharedStringsTable(pkg);
+            styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            for (int i = 0; i <= sheetIndex; i++) {
+                if (sheetStream != null) {
+                    sheetStream.close();
+                }
+                if (!sheets.hasNext()) {
+                    throw new IOException("The workbook has no sheet " + (sheetIndex + 1));
+                }
+                sheetStream = sheets.next();
+            }
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            xml = factory.createXMLStreamReader(sheetStream);
+            nextRow = readRow();
+        } catch (OpenXML4JException | SAXException | XMLStreamException | RuntimeException e) {
+            close();
+            throw new IOException(e);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * get the names of all sheets, without reading their rows
+     *
+     * @param file the xlsx file
+     * @return the names in the order of the workbook
+     */
+    public static List<String> getSheetNames(File file) throws IOException {
+        OPCPackage sheetPackage = null;
+        try {
+            sheetPackage = OPCPackage.open(file, PackageAccess.READ);
+            List<String> names = new ArrayList<>();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) new XSSFReader(sheetPackage).getSheetsData();
+            while (sheets.hasNext()) {
+                sheets.next().close();
+                names.add(sheets.getSheetName());
+            }
+            return names;
+        } catch (OpenXML4JException e) {
+            throw new IOException(e);
+        } finally {
+            if (sheetPackage != null) {
+                sheetPackage.revert();
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextRow != null;
+    }
+
+    @Override
+    public SheetRow next() {
+        if (nextRow == null) {
+            throw new NoSuchElementException();
+        }
+        SheetRow current = nextRow;
+        try {
+            nextRow = readRow();
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(e);
+        }
+        return current;
+    }
+
+    private SheetRow readRow() throws XMLStreamException {
+        while (xml.hasNext()) {
+            if (xml.next() == XMLStreamConstants.START_ELEMENT && "row".equals(xml.getLocalName())) {
+                return parseRow();
+            }
+        }
+        return null;
+    }
+
+    private SheetRow parseRow() throws XMLStreamException {
+        String rowReference = xml.getAttributeValue(null, "r");
+        // the reference is optional, without it the row follows the previous one
+        int rowNumber = rowReference == null ? lastRowNumber + 1 : Integer.parseInt(rowReference) - 1;
+        lastRowNumber = rowNumber;
+
+        int lastColumn = 0;
+        int nextColumn = 0;
+        Arrays.fill(rowValues, null);
+
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "row".equals(xml.getLocalName())) {
+                break;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && "c".equals(xml.getLocalName())) {
+                String cellReference = xml.getAttributeValue(null, "r");
+                int column = cellReference == null ? nextColumn : getColumnIndex(cellReference);
+                String cellType = xml.getAttributeValue(null, "t");
+                String style = xml.getAttributeValue(null, "s");
+                String value = parseCell(cellType);
+                ensureCapacity(column + 1);
+                rowValues[column] = value;
+                rowStyles[column] = style == null ? 0 : Integer.parseInt(style);
+                nextColumn = column + 1;
+                lastColumn = Math.max(lastColumn, nextColumn);
+            }
+        }
+        String[] values = Arrays.copyOf(rowValues, lastColumn);
+        if (lastColumn == 0) {
+            return new SheetRow(rowNumber, values, 0, null, null, false);
+        }
+        return SheetRow.create(rowNumber, values, column -> isBold(rowStyles[column]));
+    }
+
+    /**
+     * read the content of the current cell element and convert it into a string
+     */
+    private String parseCell(String cellType) throws XMLStreamException {
+        String rawValue = null;
+        StringBuilder inlineString = null;
+        int depth = 1;
+        boolean phonetic = false;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = xml.getLocalName();
+                if ("v".equals(name)) {
+                    rawValue = xml.getElementText();
+                } else if ("t".equals(name) && !phonetic) {
+                    if (inlineString == null) {
+                        inlineString = new StringBuilder();
+                    }
+                    inlineString.append(xml.getElementText());
+                } else if ("f".equals(name)) {
+                    // formula definition, only the cached result is used
+                    xml.getElementText();
+                } else {
+                    if ("rPh".equals(name)) {
+                        phonetic = true;
+                    }
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if ("rPh".equals(xml.getLocalName())) {
+                    phonetic = false;
+                }
+                depth--;
+            }
+        }
+
+        if ("inlineStr".equals(cellType)) {
+            return inlineString == null ? "" : inlineString.toString();
+        }
+        if (StringUtils.isEmpty(rawValue)) {
+            return "";
+        }
+        if (cellType == null || "n".equals(cellType)) {
+            return String.valueOf((long) Double.parseDouble(rawValue));
+        }
+        switch (cellType) {
+            case "s":
+                return sharedStrings.getItemAt(Integer.parseInt(rawValue)).getString();
+            case "b":
+                return "1".equals(rawValue) ? "true" : "false";
+            case "str":
+                return rawValue;
+            default:
+                // error values
+                return "";
+        }
+    }
+
+    private boolean isBold(int styleIndex) {
+        return boldStyles.computeIfAbsent(styleIndex, idx -> styles.getStyleAt(idx).getFont().getBold());
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > rowValues.length) {
+            int newSize = Math.max(size, rowValues.length * 2);
+            rowValues = Arrays.copyOf(rowValues, newSize);
+            rowStyles = Arrays.copyOf(rowStyles, newSize);
+        }
+    }
+
+    /**
+     * convert a cell reference like AB12 into the column index 27
+     */
+    static int getColumnIndex(String cellReference) {
+        int column = 0;
+        for (int i = 0; i < cellReference.length(); i++) {
+            char c = cellReference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (xml != null) {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            if (sheetStream != null) {
+                sheetStream.close();
+            }
+            if (pkg != null) {
+                pkg.revert();
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package de.intranda.goobi.plugins;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import org.apache.commons.io.input.BOMInputStream;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+/**
+ * Reads a sheet of a workbook using the POI usermodel. The complete workbook is loaded into memory, use the {@link StreamingRowReader}
+ * for large xlsx files.
+ *
+ * Formulas are either evaluated with a single evaluator for the whole workbook, so the results of referenced cells are cached, or the result is
+ * taken from the file, as it was stored by the application that saved it.
+ */
+public class WorkbookRowReader implements SheetRowReader {
+
+    // null, if the workbook is opened and closed by the caller
+    private final InputStream fileInputStream;
+    private final Workbook wb;
+    private final Iterator<Row> rowIterator;
+
+    // null, if the cached formula results are used
+    private final FormulaEvaluator evaluator;
+
+    public WorkbookRowReader(File file) throws IOException {
+        this(file, true);
+    }
+
+    /**
+     * @param file the workbook
+     * @param evaluateFormulas true to evaluate the formulas, false to use the results stored in the file
+     */
+    public WorkbookRowReader(File file, boolean evaluateFormulas) throws IOException {
+        fileInputStream = new FileInputStream(file);
+        try {
+            BOMInputStream in = BOMInputStream.builder().setInputStream(fileInputStream).setInclude(false).get();
+            wb = WorkbookFactory.create(in);
+        } catch (IOException | RuntimeException e) {
+            fileInputStream.close();
+            throw e;
+        }
+        rowIterator = wb.getSheetAt(0).rowIterator();
+        evaluator = evaluateFormulas ? wb.getCreationHelper().createFormulaEvaluator() : null;
+    }
+
+    /**
+     * read a sheet of a workbook that was opened by the caller, the workbook is not closed by this reader
+     *
+     * @param wb the workbook, see {@link #openWorkbook(File)}
+     * @param sheetIndex index of the sheet, starting with 0
+     * @param evaluateFormulas true to evaluate the formulas, false to use the results stored in the file
+     */
+    public WorkbookRowReader(Workbook wb, int sheetIndex, boolean evaluateFormulas) {
+        fileInputStream = null;
+        this.wb = wb;
+        rowIterator = wb.getSheetAt(sheetIndex).rowIterator();
+        evaluator = evaluateFormulas ? wb.getCreationHelper().createFormulaEvaluator() : null;
+    }
+
+    /**
+     * load a workbook into memory
+     *
+     * @param file the workbook
+     * @return the workbook, the caller must close it
+     */
+    public static Workbook openWorkbook(File file) throws IOException {
+        try (InputStream fileIn = new FileInputStream(file)) {
+            BOMInputStream in = BOMInputStream.builder().setInputStream(fileIn).setInclude(false).get();
+            return WorkbookFactory.create(in);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rowIterator.hasNext();
+    }
+
+    @Override
+    public SheetRow next() {
+        Row row = rowIterator.next();
+        int lastColumn = row.getLastCellNum();
+        if (lastColumn == -1) {
+            return new SheetRow(row.getRowNum(), new String[0], 0, null, null, false);
+        }
+        String[] values = new String[lastColumn];
+        for (int i = 0; i < lastColumn; i++) {
+            Cell cell = row.getCell(i);
+            if (cell != null) {
+                values[i] = getCellValue(cell, evaluator);
+            }
+        }
+        return SheetRow.create(row.getRowNum(), values, column -> wb.getFontAt(row.getCell(column).getCellStyle().getFontIndex()).getBold());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileInputStream == null) {
+            return;
+        }
+        try {
+            wb.close();
+        } finally {
+            fileInputStream.close();
+        }
+    }
+
+    /**
+     * get the value of a cell as string
+     *
+     * @param cell the cell
+     * @param evaluator evaluator of the workbook, re-use it for all cells. If it is null, the cached result of a formula is used
+     * @return the value, an empty string for blank and error cells
+     */
+    public static String getCellValue(Cell cell, FormulaEvaluator evaluator) {
+        switch (cell.getCellType()) {
+            case BOOLEAN:
+                return cell.getBooleanCellValue() ? "true" : "false";
+            case NUMERIC:
+                return String.valueOf((long) cell.getNumericCellValue());
+            case STRING:
+                return cell.getStringCellValue();
+            case FORMULA:
+                if (evaluator == null) {
+                    return getCachedFormulaResult(cell);
+                }
+                CellValue cellValue = evaluator.evaluate(cell);
+                switch (cellValue.getCellType()) {
+                    case BOOLEAN:
+                        return cellValue.getBooleanValue() ? "true" : "false";
+                    case NUMERIC:
+                        return String.valueOf((long) cellValue.getNumberValue());
+                    case STRING:
+                        return cellValue.getStringValue();
+                    default:
+                        // none, error, blank
+                        return "";
+                }
+            default:
+                // none, error, blank
+                return "";
+        }
+    }
+
+    private static String getCachedFormulaResult(Cell cell) {
+        switch (cell.getCachedFormulaResultType()) {
+            case BOOLEAN:
+                return cell.getBooleanCellValue() ? "true" : "false";
+            case NUMERIC:
+                return String.valueOf((long) cell.getNumericCellValue());
+            case STRING:
+                return cell.getStringCellValue();
+            default:
+                // error
+                return "";
+        }
+    }
+}
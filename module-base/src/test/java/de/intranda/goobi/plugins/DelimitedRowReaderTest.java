@@ -0,0 +1,83 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DelimitedRowReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String name, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testQuotedFields() throws IOException {
+        Path file = write("import.csv", "\uFEFFa,\"b,c\",\"d \"\"e\"\"\"\r\n\"line\nbreak\",,f");
+        try (DelimitedRowReader reader = new DelimitedRowReader(file, StandardCharsets.UTF_8, ',', -1, null, null)) {
+            assertArrayEquals(new String[] { "a", "b,c", "d \"e\"" }, reader.next().getValues());
+            assertArrayEquals(new String[] { "line\nbreak", "", "f" }, reader.next().getValues());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void testColumnWithoutHeader() throws IOException {
+        Path file = write("import.csv", "0,root,Root\n1,CR_1,Letter\n");
+        try (DelimitedRowReader reader = new DelimitedRowReader(file, StandardCharsets.UTF_8, ',', -1, "Level", null)) {
+            fail("the level column cannot be found without a header row");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try (DelimitedRowReader reader = new DelimitedRowReader(file, StandardCharsets.UTF_8, ',', -1, null, "Process")) {
+            fail("the process column cannot be found without a header row");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testHierarchyFromLeadingFields() throws IOException {
+        Path file = write("import.tsv", "Level 1\tLevel 2\tLabel\tProcess\nroot\t\tRoot\t\n\tchild\tChild\tx\n");
+        try (DelimitedRowReader reader = new DelimitedRowReader(file, StandardCharsets.UTF_8, '\t', 0, null, "Process")) {
+            reader.next();
+            SheetRow root = reader.next();
+            assertEquals(0, root.getHierarchy());
+            assertFalse(root.isProcess());
+            SheetRow child = reader.next();
+            assertEquals(1, child.getHierarchy());
+            assertEquals("child", child.getFirstValue());
+            assertEquals("Child", child.getSecondValue());
+            assertTrue(child.isProcess());
+        }
+    }
+
+    @Test
+    public void testHierarchyFromLevelColumn() throws IOException {
+        Path file = write("import.csv", "Level;Identifier;Label;Process\n\n2;CR_1;Letter;true\n");
+        try (DelimitedRowReader reader = new DelimitedRowReader(file, StandardCharsets.UTF_8, ';', 0, "Level", "Process")) {
+            reader.next();
+            assertTrue(reader.next().isEmpty());
+            SheetRow row = reader.next();
+            assertEquals(2, row.getHierarchy());
+            assertEquals("CR_1", row.getFirstValue());
+            assertEquals("Letter", row.getSecondValue());
+            assertTrue(row.isProcess());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DerivativeSelectionTest {
+
+    private static List<Path> files(String... names) {
+        List<Path> files = new ArrayList<>();
+        for (String name : names) {
+            files.add(Paths.get("/images", name));
+        }
+        return files;
+    }
+
+    @Test
+    public void testPreferEditedTif() {
+        DerivativeSelection selection = new DerivativeSelection(DerivativeSelection.DEFAULT_SUFFIXES);
+        List<Path> selected = selection.select(files("001.jpg", "001.tif", "001_bearbeitet.tif", "002.jpg", "002.tif", "003.jpg"));
+        assertEquals(files("001_bearbeitet.tif", "002.tif", "003.jpg"), selected);
+    }
+
+    @Test
+    public void testKeepOtherFiles() {
+        DerivativeSelection selection = new DerivativeSelection(DerivativeSelection.DEFAULT_SUFFIXES);
+        List<Path> selected = selection.select(files("001.jpg", "001.png", "001.wmv"));
+        assertEquals(files("001.jpg", "001.png", "001.wmv"), selected);
+    }
+
+    @Test
+    public void testEditedJpg() {
+        DerivativeSelection selection = new DerivativeSelection(DerivativeSelection.DEFAULT_SUFFIXES);
+        List<Path> selected = selection.select(files("001_bearbeitet.jpg", "001_bearbeitet.tif", "002_bearbeitet.jpg", "002.tif"));
+        assertEquals(files("001_bearbeitet.tif", "002_bearbeitet.jpg", "002.tif"), selected);
+    }
+
+    @Test
+    public void testConfiguredOrder() {
+        DerivativeSelection selection = new DerivativeSelection(Arrays.asList(".jpg", ".tif"));
+        List<Path> selected = selection.select(files("001.jpg", "001.tif", "002.tif"));
+        assertEquals(files("001.jpg", "002.tif"), selected);
+    }
+}
@@ -0,0 +1,51 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ExistingProcessTitlesTest {
+
+    @Test
+    public void testBatches() throws Exception {
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < 2 * ExistingProcessTitles.BATCH_SIZE + 1; i++) {
+            titles.add("CR_" + i);
+        }
+        // duplicate titles are only checked once
+        titles.add("CR_0");
+
+        List<Integer> batchSizes = new ArrayList<>();
+        List<String> checked = new ArrayList<>();
+        ExistingProcessTitles.find(titles, batch -> {
+            batchSizes.add(batch.size());
+            checked.addAll(batch);
+            return Collections.emptyList();
+        });
+        assertEquals(Arrays.asList(ExistingProcessTitles.BATCH_SIZE, ExistingProcessTitles.BATCH_SIZE, 1), batchSizes);
+        assertEquals(new HashSet<>(titles), new HashSet<>(checked));
+        assertEquals(titles.size() - 1, checked.size());
+    }
+
+    @Test
+    public void testCaseInsensitive() throws Exception {
+        // the database finds the titles regardless of the case and returns the spelling of the existing process
+        List<String> titles = Arrays.asList("CR_1_Krone", "cr_2_zepter", "CR_3_Reichsapfel");
+        assertEquals(new HashSet<>(Arrays.asList("CR_1_Krone", "cr_2_zepter")),
+                ExistingProcessTitles.find(titles, batch -> Arrays.asList("cr_1_krone", "CR_2_Zepter")));
+    }
+
+    @Test
+    public void testNoTitles() throws Exception {
+        assertTrue(ExistingProcessTitles.find(Collections.emptyList(), batch -> {
+            throw new AssertionError("no query for an empty list");
+        }).isEmpty());
+    }
+}
@@ -0,0 +1,177 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.goobi.production.enums.ImportReturnValue;
+import org.goobi.production.importer.ImportObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.ImageTransfer.TransferMode;
+import de.sub.goobi.helper.NIOFileUtils;
+
+public class ImageCopyPipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path sourceVolume;
+    private Path targetVolume;
+
+    @Before
+    public void setUp() throws Exception {
+        sourceVolume = folder.newFolder("images").toPath();
+        // a volume mounted inside the other one
+        targetVolume = Files.createDirectories(sourceVolume.resolve("metadata"));
+    }
+
+    /**
+     * copies the file and counts the parallel copies of each volume, files whose name contains the given text fail
+     */
+    private static class CountingTransfer extends ImageTransfer {
+        private final Path volume;
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maximum = new AtomicInteger();
+        private final String failure;
+
+        CountingTransfer(Path volume, String failure) {
+            super(TransferMode.COPY, new NIOFileUtils());
+            this.volume = volume;
+            this.failure = failure;
+        }
+
+        @Override
+        public void transfer(Path source, Path target) throws IOException {
+            boolean counted = source.startsWith(volume) || target.startsWith(volume);
+            if (counted) {
+                maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+            }
+            try {
+                Thread.sleep(10);
+                if (failure != null && source.getFileName().toString().contains(failure)) {
+                    if (source.getFileName().toString().endsWith(".jpg")) {
+                        throw new IllegalStateException("unexpected error");
+                    }
+                    throw new IOException("disk full");
+                }
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (counted) {
+                    running.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private List<Path> createImages(Path imageFolder, String prefix, int count) throws IOException {
+        Files.createDirectories(imageFolder);
+        List<Path> images = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path image = imageFolder.resolve(prefix + i + ".tif");
+            Files.write(image, ("image " + i).getBytes(StandardCharsets.UTF_8));
+            images.add(image);
+        }
+        return images;
+    }
+
+    @Test
+    public void testVolumeLimit() throws Exception {
+        CountingTransfer transfer = new CountingTransfer(targetVolume, null);
+        ImageCopyPipeline pipeline = new ImageCopyPipeline(transfer, 4, Collections.singletonMap(targetVolume.toString(), 1));
+        List<Path> images = createImages(folder.getRoot().toPath().resolve("source"), "image_", 20);
+        ImportObject io = new ImportObject();
+        io.setImportReturnValue(ImportReturnValue.ExportFinished);
+        Path targetFolder = Files.createDirectories(targetVolume.resolve("process"));
+        pipeline.copy(io, images, targetFolder);
+        pipeline.finish();
+
+        assertEquals(ImportReturnValue.ExportFinished, io.getImportReturnValue());
+        assertEquals(images.size(), targetFolder.toFile().list().length);
+        assertEquals(1, transfer.maximum.get());
+    }
+
+    @Test
+    public void testVolumeOrder() throws Exception {
+        Map<String, Integer> limits = new HashMap<>();
+        limits.put(sourceVolume.toString(), 1);
+        limits.put(targetVolume.toString(), 1);
+        ImageCopyPipeline pipeline = new ImageCopyPipeline(new CountingTransfer(targetVolume, null), 2, limits);
+        try {
+            Path outer = sourceVolume.resolve("a.tif");
+            Path inner = targetVolume.resolve("b.tif");
+            // the longest mount point is found for each file and both directions use the same order
+            List<Semaphore> permits = pipeline.getVolumes(outer, inner);
+            assertEquals(2, permits.size());
+            assertNotSame(permits.get(0), permits.get(1));
+            assertEquals(permits, pipeline.getVolumes(inner, outer));
+            assertEquals(permits.subList(0, 1), pipeline.getVolumes(inner, inner));
+            assertEquals(permits.subList(1, 2), pipeline.getVolumes(outer, outer));
+        } finally {
+            pipeline.finish();
+        }
+    }
+
+    @Test
+    public void testCopiesInBothDirections() throws Exception {
+        Map<String, Integer> limits = new HashMap<>();
+        limits.put(sourceVolume.toString(), 1);
+        limits.put(targetVolume.toString(), 1);
+        ImageCopyPipeline pipeline = new ImageCopyPipeline(new CountingTransfer(targetVolume, null), 4, limits);
+        ImportObject first = new ImportObject();
+        ImportObject second = new ImportObject();
+        Path firstTarget = Files.createDirectories(targetVolume.resolve("first"));
+        Path secondTarget = Files.createDirectories(sourceVolume.resolve("second"));
+        // copies from the outer to the inner volume and back wait for the same permits without blocking each other
+        pipeline.copy(first, createImages(sourceVolume.resolve("outer"), "outer_", 10), firstTarget);
+        pipeline.copy(second, createImages(targetVolume.resolve("inner"), "inner_", 10), secondTarget);
+        pipeline.finish();
+
+        assertEquals(10, firstTarget.toFile().list().length);
+        assertEquals(10, secondTarget.toFile().list().length);
+    }
+
+    @Test
+    public void testFailedCopies() throws Exception {
+        ImageCopyPipeline pipeline = new ImageCopyPipeline(new CountingTransfer(targetVolume, "broken"), 2, Collections.emptyMap());
+        Path sourceFolder = folder.getRoot().toPath().resolve("source");
+        List<Path> images = createImages(sourceFolder, "image_", 3);
+        images.add(Files.write(sourceFolder.resolve("broken.tif"), new byte[1]));
+        images.add(Files.write(sourceFolder.resolve("broken.jpg"), new byte[1]));
+
+        ImportObject failed = new ImportObject();
+        failed.setImportReturnValue(ImportReturnValue.ExportFinished);
+        ImportObject successful = new ImportObject();
+        successful.setImportReturnValue(ImportReturnValue.ExportFinished);
+        pipeline.copy(failed, images, Files.createDirectories(targetVolume.resolve("failed")));
+        pipeline.copy(successful, createImages(folder.getRoot().toPath().resolve("other"), "other_", 2),
+                Files.createDirectories(targetVolume.resolve("successful")));
+        pipeline.finish();
+
+        // io errors and unexpected exceptions of single files are reported on their record
+        assertEquals(ImportReturnValue.WriteError, failed.getImportReturnValue());
+        assertTrue(failed.getErrorMessage().startsWith("Images could not be copied: "));
+        assertTrue(failed.getErrorMessage().contains("broken.tif: disk full"));
+        assertTrue(failed.getErrorMessage().contains("unexpected error"));
+        assertEquals(ImportReturnValue.ExportFinished, successful.getImportReturnValue());
+        assertEquals(3, targetVolume.resolve("failed").toFile().list().length);
+    }
+}
@@ -0,0 +1,124 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.ImageTransfer.TransferMode;
+import de.sub.goobi.helper.NIOFileUtils;
+
+public class ImageTransferTest {
+
+    private static final FileTime SOURCE_TIME = FileTime.from(1500000000, TimeUnit.SECONDS);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path source;
+    private Path target;
+
+    @Before
+    public void setUp() throws Exception {
+        source = folder.newFile("00000001.tif").toPath();
+        Files.write(source, "image content".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(source, SOURCE_TIME);
+        target = folder.newFolder("process").toPath().resolve("00000001.tif");
+    }
+
+    private void assertCopy() throws IOException {
+        assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(target));
+        assertFalse(Files.isSameFile(source, target));
+        assertEquals(SOURCE_TIME.to(TimeUnit.SECONDS), Files.getLastModifiedTime(target).to(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        new ImageTransfer(TransferMode.COPY, new NIOFileUtils()).transfer(source, target);
+        assertCopy();
+    }
+
+    @Test
+    public void testReflink() throws Exception {
+        new ImageTransfer(TransferMode.REFLINK, new NIOFileUtils()).transfer(source, target);
+        assertCopy();
+    }
+
+    @Test
+    public void testHardlink() throws Exception {
+        // the modification time of the link is the one of the source, the source itself is not touched
+        FileTime newerTime = FileTime.from(1600000000, TimeUnit.SECONDS);
+        Files.setLastModifiedTime(source, newerTime);
+        new ImageTransfer(TransferMode.HARDLINK, new NIOFileUtils()).transfer(source, target);
+        assertTrue(Files.isSameFile(source, target));
+        assertEquals(newerTime, Files.getLastModifiedTime(source));
+    }
+
+    @Test
+    public void testHardlinkFallback() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        ImageTransfer transfer = new ImageTransfer(TransferMode.HARDLINK, new NIOFileUtils()) {
+            @Override
+            void link(Path linkSource, Path linkTarget) throws IOException {
+                attempts.incrementAndGet();
+                throw new FileSystemException(linkSource.toString(), linkTarget.toString(), "Invalid cross-device link");
+            }
+        };
+        transfer.transfer(source, target);
+        assertCopy();
+
+        // the link is not tried again for the next file
+        Path secondSource = folder.newFile("00000002.tif").toPath();
+        Files.write(secondSource, "second image".getBytes(StandardCharsets.UTF_8));
+        Path secondTarget = target.resolveSibling("00000002.tif");
+        transfer.transfer(secondSource, secondTarget);
+        assertArrayEquals(Files.readAllBytes(secondSource), Files.readAllBytes(secondTarget));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testIdenticalFileIsSkipped() throws Exception {
+        // same size and modification time, the content is not compared
+        byte[] existing = "IMAGE CONTENT".getBytes(StandardCharsets.UTF_8);
+        Files.write(target, existing);
+        Files.setLastModifiedTime(target, SOURCE_TIME);
+        new ImageTransfer(TransferMode.COPY, new NIOFileUtils()).transfer(source, target);
+        assertArrayEquals(existing, Files.readAllBytes(target));
+
+        // a different modification time replaces the file
+        Files.setLastModifiedTime(target, FileTime.from(1400000000, TimeUnit.SECONDS));
+        new ImageTransfer(TransferMode.COPY, new NIOFileUtils()).transfer(source, target);
+        assertCopy();
+    }
+
+    @Test
+    public void testIncompleteCopy() throws Exception {
+        NIOFileUtils brokenStorage = new NIOFileUtils() {
+            @Override
+            public void copyFile(Path srcFile, Path destFile) throws IOException {
+                Files.write(destFile, new byte[1]);
+            }
+        };
+        try {
+            new ImageTransfer(TransferMode.COPY, brokenStorage).transfer(source, target);
+            fail("the incomplete copy is not detected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("differs"));
+        }
+    }
+}
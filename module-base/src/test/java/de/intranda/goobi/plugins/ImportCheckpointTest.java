@@ -0,0 +1,113 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImportCheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ImportCheckpoint createCheckpoint() {
+        return new ImportCheckpoint(folder.getRoot().toPath(), "checkpoint", 2);
+    }
+
+    @Test
+    public void testResumeAfterStop() {
+        ImportCheckpoint checkpoint = createCheckpoint();
+        checkpoint.rowCompleted(1, "node_1", 0);
+        checkpoint.rowCompleted(2, "node_2", 0);
+        checkpoint.rowCompleted(3, "node_3", 1);
+        checkpoint.recordCompleted("CR_1");
+        checkpoint.recordCompleted("CR_2");
+        checkpoint.recordCompleted("CR_3");
+        // the import is stopped without closing the checkpoint, the next run uses a new instance
+
+        ImportCheckpoint resumed = createCheckpoint();
+        resumed.load();
+        assertEquals(3, resumed.getLastRow());
+        assertEquals("node_3", resumed.getLastNodeId());
+        assertEquals(1, resumed.getTotalHierarchy());
+        assertFalse(resumed.isRowsFinished());
+        // the last record was not written yet, its METS file is written again
+        assertTrue(resumed.isCompleted("CR_2"));
+        assertFalse(resumed.isCompleted("CR_3"));
+    }
+
+    @Test
+    public void testIncompleteLastLine() throws Exception {
+        ImportCheckpoint checkpoint = createCheckpoint();
+        checkpoint.rowCompleted(1, "node_1", 0);
+        checkpoint.rowCompleted(2, "node_2", 0);
+        checkpoint.close();
+        // the import was stopped while the next line was written
+        Files.write(folder.getRoot().toPath().resolve("checkpoint.rows"), "3\tnode_3\t1".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        ImportCheckpoint resumed = createCheckpoint();
+        resumed.load();
+        assertEquals(2, resumed.getLastRow());
+        assertEquals("node_2", resumed.getLastNodeId());
+        assertEquals(0, resumed.getTotalHierarchy());
+    }
+
+    @Test
+    public void testRemovedAfterAllRecords() {
+        Path root = folder.getRoot().toPath();
+        ImportCheckpoint checkpoint = createCheckpoint();
+        checkpoint.rowCompleted(1, "node_1", 0);
+        checkpoint.rowCompleted(2, "node_2", 0);
+        checkpoint.rowsFinished(Arrays.asList("CR_1", "CR_2"));
+
+        // the first record is imported by a GoobiScript job with its own instance
+        ImportCheckpoint first = createCheckpoint();
+        first.load();
+        assertTrue(first.isRowsFinished());
+        first.recordCompleted("CR_1");
+        assertFalse(first.finishIfComplete());
+        assertTrue(Files.exists(root.resolve("checkpoint.rows")));
+
+        // the checkpoint is kept until the last record was imported, the records of the other job are read from the file
+        ImportCheckpoint second = createCheckpoint();
+        second.load();
+        assertTrue(second.isCompleted("CR_1"));
+        second.recordCompleted("CR_2");
+        assertTrue(second.finishIfComplete());
+        assertFalse(Files.exists(root.resolve("checkpoint.rows")));
+        assertFalse(Files.exists(root.resolve("checkpoint.records")));
+        assertFalse(Files.exists(root.resolve("checkpoint.expected")));
+
+        ImportCheckpoint next = createCheckpoint();
+        next.load();
+        assertEquals(-1, next.getLastRow());
+        assertNull(next.getLastNodeId());
+        assertFalse(next.isRowsFinished());
+    }
+
+    @Test
+    public void testKeptWhileRowsAreRead() {
+        ImportCheckpoint checkpoint = createCheckpoint();
+        checkpoint.rowCompleted(1, "node_1", 0);
+        checkpoint.recordCompleted("CR_1");
+        // the first chunk was imported, but the file was not read completely
+        assertFalse(checkpoint.finishIfComplete());
+        checkpoint.close();
+
+        ImportCheckpoint resumed = createCheckpoint();
+        resumed.load();
+        assertEquals(1, resumed.getLastRow());
+        assertTrue(resumed.isCompleted("CR_1"));
+    }
+}
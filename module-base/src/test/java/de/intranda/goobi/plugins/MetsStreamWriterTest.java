@@ -0,0 +1,223 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import ugh.dl.Corporate;
+import ugh.dl.DigitalDocument;
+import ugh.dl.DocStruct;
+import ugh.dl.Fileformat;
+import ugh.dl.Metadata;
+import ugh.dl.MetadataGroup;
+import ugh.dl.NamePart;
+import ugh.dl.Person;
+import ugh.dl.Prefs;
+import ugh.fileformats.mets.MetsMods;
+
+/**
+ * Compares the files of the {@link MetsStreamWriter} with the files written by MetsMods. The files are compared element by element after parsing:
+ * the header with creation date and agent is skipped, generated ids are replaced by their position, the order of attributes and whitespace
+ * between elements are ignored.
+ */
+public class MetsStreamWriterTest {
+
+    // attributes that contain or reference generated ids
+    private static final Set<String> ID_ATTRIBUTES = new HashSet<>(Arrays.asList("ID", "DMDID", "ADMID", "FILEID"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Prefs prefs;
+
+    @Before
+    public void setUp() throws Exception {
+        prefs = new Prefs();
+        prefs.loadPrefs(Paths.get(MetsStreamWriterTest.class.getResource("/ruleset_mets.xml").toURI()).toString());
+    }
+
+    /**
+     * create a document like the import does: a logical element and a physical element with the image path
+     */
+    private Fileformat createDocument() throws Exception {
+        Fileformat fileformat = new MetsMods(prefs);
+        DigitalDocument document = new DigitalDocument();
+        fileformat.setDigitalDocument(document);
+        DocStruct logical = document.createDocStruct(prefs.getDocStrctTypeByName("Monograph"));
+        DocStruct physical = document.createDocStruct(prefs.getDocStrctTypeByName("BoundBook"));
+        document.setLogicalDocStruct(logical);
+        document.setPhysicalDocStruct(physical);
+        physical.addMetadata(createMetadata("pathimagefiles", "./images/", null));
+        return fileformat;
+    }
+
+    private Metadata createMetadata(String type, String value, String authorityValue) throws Exception {
+        Metadata metadata = new Metadata(prefs.getMetadataTypeByName(type));
+        metadata.setValue(value);
+        if (authorityValue != null) {
+            metadata.setAuthorityFile("gnd", "http://d-nb.info/gnd/", authorityValue);
+        }
+        return metadata;
+    }
+
+    private Person createPerson(String type, String firstname, String lastname, String authorityValue) throws Exception {
+        Person person = new Person(prefs.getMetadataTypeByName(type));
+        person.setFirstname(firstname);
+        person.setLastname(lastname);
+        if (authorityValue != null) {
+            person.setAuthorityFile("gnd", "http://d-nb.info/gnd/", authorityValue);
+        }
+        return person;
+    }
+
+    private Corporate createCorporate(String type, String mainName, String subName, String partName) throws Exception {
+        Corporate corporate = new Corporate(prefs.getMetadataTypeByName(type));
+        corporate.setMainName(mainName);
+        if (subName != null) {
+            corporate.addSubName(new NamePart("subname", subName));
+        }
+        corporate.setPartName(partName);
+        return corporate;
+    }
+
+    @Test
+    public void testCompleteDocument() throws Exception {
+        Fileformat fileformat = createDocument();
+        DocStruct logical = fileformat.getDigitalDocument().getLogicalDocStruct();
+        logical.addMetadata(createMetadata("CatalogIDDigital", "CR_000001", null));
+        logical.addMetadata(createMetadata("TitleDocMain", "Reichskrone & Zepter <Wien>", "4049218-4"));
+        logical.addMetadata(createMetadata("NodeId", "CR_000001", null));
+        logical.addMetadata(createMetadata("singleDigCollection", "Reichskrone", null));
+        logical.addPerson(createPerson("Author", "Maximilian", "Habsburg", "118579371"));
+        logical.addPerson(createPerson("Author", null, "Anonymus", null));
+        logical.addCorporate(createCorporate("Publisher", "Schatzkammer", "Weltliche Schatzkammer", "Inventar"));
+
+        MetadataGroup event = new MetadataGroup(prefs.getMetadataGroupTypeByName("Event"));
+        event.addMetadata(createMetadata("EventDate", "1424", null));
+        event.addPerson(createPerson("EventPerson", "Sigismund", "Luxemburg", "118613723"));
+        event.addCorporate(createCorporate("EventCorporate", "Reichsstadt Nürnberg", null, null));
+        logical.addMetadataGroup(event);
+
+        compare(fileformat);
+    }
+
+    @Test
+    public void testGroupWithPersonOnly() throws Exception {
+        Fileformat fileformat = createDocument();
+        DocStruct logical = fileformat.getDigitalDocument().getLogicalDocStruct();
+        logical.addMetadata(createMetadata("TitleDocMain", "Reichsapfel", null));
+        MetadataGroup event = new MetadataGroup(prefs.getMetadataGroupTypeByName("Event"));
+        event.addPerson(createPerson("EventPerson", "Karl", null, null));
+        logical.addMetadataGroup(event);
+
+        compare(fileformat);
+    }
+
+    @Test
+    public void testEmptyValues() throws Exception {
+        // like rows with empty cells: persons and corporates without a name, a group without values
+        Fileformat fileformat = createDocument();
+        DocStruct logical = fileformat.getDigitalDocument().getLogicalDocStruct();
+        logical.addMetadata(createMetadata("TitleDocMain", "Reichsschwert", null));
+        logical.addPerson(createPerson("Author", null, null, null));
+        logical.addCorporate(createCorporate("Publisher", null, null, null));
+        logical.addMetadataGroup(new MetadataGroup(prefs.getMetadataGroupTypeByName("Event")));
+
+        compare(fileformat);
+    }
+
+    @Test
+    public void testLogicalElementWithoutMetadata() throws Exception {
+        compare(createDocument());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDocumentWithChildren() throws Exception {
+        Fileformat fileformat = createDocument();
+        DigitalDocument document = fileformat.getDigitalDocument();
+        document.getLogicalDocStruct().addChild(document.createDocStruct(prefs.getDocStrctTypeByName("Monograph")));
+        MetsStreamWriter.write(document, folder.newFile().toPath());
+    }
+
+    private void compare(Fileformat fileformat) throws Exception {
+        Path expected = folder.newFile().toPath();
+        fileformat.write(expected.toString());
+        Path actual = folder.newFile().toPath();
+        MetsStreamWriter.write(fileformat.getDigitalDocument(), actual);
+        assertEquals(normalize(expected.toFile()), normalize(actual.toFile()));
+    }
+
+    /**
+     * create a text with one line per element, attribute and text
+     */
+    private static String normalize(File file) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Element root = factory.newDocumentBuilder().parse(file).getDocumentElement();
+        StringBuilder text = new StringBuilder();
+        append(text, root, new HashMap<>(), "");
+        return text.toString();
+    }
+
+    private static void append(StringBuilder text, Element element, Map<String, String> ids, String indent) {
+        if ("metsHdr".equals(element.getLocalName())) {
+            return;
+        }
+        text.append(indent).append('{').append(element.getNamespaceURI()).append('}').append(element.getLocalName()).append('\n');
+        Map<String, String> attributes = new TreeMap<>();
+        NamedNodeMap attributeNodes = element.getAttributes();
+        for (int i = 0; i < attributeNodes.getLength(); i++) {
+            Attr attribute = (Attr) attributeNodes.item(i);
+            if ("http://www.w3.org/2000/xmlns/".equals(attribute.getNamespaceURI())) {
+                continue;
+            }
+            String name = attribute.getLocalName() == null ? attribute.getName() : attribute.getLocalName();
+            String value = attribute.getValue();
+            if (ID_ATTRIBUTES.contains(name)) {
+                List<String> normalized = new ArrayList<>();
+                for (String id : value.split(" ")) {
+                    normalized.add(ids.computeIfAbsent(id, k -> "id" + ids.size()));
+                }
+                value = String.join(" ", normalized);
+            }
+            attributes.put(name, value);
+        }
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            text.append(indent).append("  @").append(attribute.getKey()).append('=').append(attribute.getValue()).append('\n');
+        }
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                append(text, (Element) child, ids, indent + "  ");
+            } else if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+                String value = child.getNodeValue();
+                if (!value.trim().isEmpty()) {
+                    text.append(indent).append("  '").append(value).append("'\n");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class MultiSheetReaderTest {
+
+    /**
+     * a sheet with the given number of rows, the number of decoded rows is counted
+     */
+    private static SheetRowReader createSheet(int sheetIndex, int numberOfRows, AtomicInteger decodedRows) {
+        return new SheetRowReader() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < numberOfRows;
+            }
+
+            @Override
+            public SheetRow next() {
+                decodedRows.incrementAndGet();
+                String value = sheetIndex + "/" + row;
+                return new SheetRow(row++, new String[] { value }, 0, value, null, false);
+            }
+
+            @Override
+            public void close() {
+                // nothing to close
+            }
+        };
+    }
+
+    @Test
+    public void testRowsInOrder() throws Exception {
+        AtomicInteger decodedRows = new AtomicInteger();
+        List<String> values = new ArrayList<>();
+        try (MultiSheetReader reader = new MultiSheetReader(Arrays.asList(0, 1, 2), 2, index -> createSheet(index, 3, decodedRows), null)) {
+            while (reader.hasNext()) {
+                try (SheetRowReader rows = reader.next()) {
+                    while (rows.hasNext()) {
+                        values.add(rows.next().getFirstValue());
+                    }
+                }
+            }
+        }
+        assertEquals(Arrays.asList("0/0", "0/1", "0/2", "1/0", "1/1", "1/2", "2/0", "2/1", "2/2"), values);
+    }
+
+    @Test
+    public void testLimitedRowsInMemory() throws Exception {
+        int numberOfRows = 10 * MultiSheetReader.QUEUED_ROWS;
+        AtomicInteger decodedRows = new AtomicInteger();
+        try (MultiSheetReader reader = new MultiSheetReader(Arrays.asList(0, 1), 1, index -> createSheet(index, numberOfRows, decodedRows), null)) {
+            SheetRowReader rows = reader.next();
+            assertEquals("0/0", rows.next().getFirstValue());
+            // the decoding thread waits for the import instead of decoding the whole sheet
+            Thread.sleep(200);
+            assertTrue(decodedRows.get() <= MultiSheetReader.QUEUED_ROWS + 2);
+            int count = 1;
+            while (rows.hasNext()) {
+                rows.next();
+                count++;
+            }
+            assertEquals(numberOfRows, count);
+            rows.close();
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        try (MultiSheetReader reader = new MultiSheetReader(Arrays.asList(0, 1), 1, index -> {
+            if (index == 1) {
+                throw new IOException("broken sheet");
+            }
+            return createSheet(index, 2, new AtomicInteger());
+        }, null)) {
+            try (SheetRowReader rows = reader.next()) {
+                assertEquals("0/0", rows.next().getFirstValue());
+                assertEquals("0/1", rows.next().getFirstValue());
+                assertTrue(!rows.hasNext());
+            }
+            try (SheetRowReader rows = reader.next()) {
+                rows.hasNext();
+                fail("the error of the second sheet is not reported");
+            } catch (UncheckedIOException e) {
+                assertEquals("broken sheet", e.getCause().getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.goobi.production.importer.Record;
+import org.junit.Test;
+
+public class RecordChunkReaderTest {
+
+    private static Record createRecord(int number) {
+        Record rec = new Record();
+        rec.setId("CR_" + number);
+        return rec;
+    }
+
+    @Test
+    public void testChunkBoundaries() {
+        try (RecordChunkReader reader = new RecordChunkReader(3, 2)) {
+            reader.start(consumer -> {
+                for (int i = 0; i < 7; i++) {
+                    consumer.accept(createRecord(i));
+                }
+            });
+            List<Integer> sizes = new ArrayList<>();
+            List<String> ids = new ArrayList<>();
+            while (reader.hasNext()) {
+                List<Record> chunk = reader.next();
+                sizes.add(chunk.size());
+                chunk.forEach(rec -> ids.add(rec.getId()));
+            }
+            assertEquals(Arrays.asList(3, 3, 1), sizes);
+            assertEquals(Arrays.asList("CR_0", "CR_1", "CR_2", "CR_3", "CR_4", "CR_5", "CR_6"), ids);
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void testWindowLimit() throws InterruptedException {
+        AtomicInteger produced = new AtomicInteger();
+        CountDownLatch blocked = new CountDownLatch(1);
+        try (RecordChunkReader reader = new RecordChunkReader(1, 1)) {
+            reader.start(consumer -> {
+                for (int i = 0; i < 100; i++) {
+                    if (i == 1) {
+                        blocked.countDown();
+                    }
+                    consumer.accept(createRecord(i));
+                    produced.incrementAndGet();
+                }
+            });
+            // one chunk waits in the queue, the reading thread blocks while passing the second one
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            assertEquals(1, produced.get());
+
+            assertEquals("CR_0", reader.next().get(0).getId());
+            assertEquals("CR_1", reader.next().get(0).getId());
+        }
+    }
+
+    @Test
+    public void testCloseWhileReading() throws InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(1);
+        RecordChunkReader reader = new RecordChunkReader(2, 1);
+        reader.start(consumer -> {
+            try {
+                for (int i = 0;; i++) {
+                    consumer.accept(createRecord(i));
+                }
+            } finally {
+                stopped.countDown();
+            }
+        });
+        assertEquals(2, reader.next().size());
+        reader.close();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testErrorInReadingThread() {
+        IllegalArgumentException error = new IllegalArgumentException("broken row");
+        try (RecordChunkReader reader = new RecordChunkReader(2, 2)) {
+            reader.start(consumer -> {
+                for (int i = 0; i < 5; i++) {
+                    consumer.accept(createRecord(i));
+                }
+                throw error;
+            });
+            // the complete chunks are returned before the error
+            assertEquals(2, reader.next().size());
+            assertEquals(2, reader.next().size());
+            try {
+                reader.hasNext();
+                fail("the error of the reading thread was not thrown");
+            } catch (IllegalStateException e) {
+                assertSame(error, e.getCause());
+            }
+            // the error is thrown again on each call
+            try {
+                reader.next();
+                fail("the error of the reading thread was not thrown");
+            } catch (IllegalStateException e) {
+                assertSame(error, e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RecordManifestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPendingRecords() {
+        Path file = folder.getRoot().toPath().resolve("manifest.txt");
+        RecordManifest manifest = RecordManifest.load(file);
+        manifest.putPending("CR_1", "hash1", "title_1");
+        manifest.putPending("CR_2", "hash2", "title_2");
+        manifest.save();
+
+        // pending records are not skipped
+        manifest = RecordManifest.load(file);
+        assertFalse(manifest.isUnchanged("CR_1", "hash1"));
+        assertEquals(new HashSet<>(Arrays.asList("title_1", "title_2")), manifest.getPendingTitles());
+
+        // only the process of the first record was created
+        manifest.confirmPending(Collections.singleton("title_1"));
+        manifest.save();
+
+        manifest = RecordManifest.load(file);
+        assertTrue(manifest.isUnchanged("CR_1", "hash1"));
+        assertFalse(manifest.isUnchanged("CR_2", "hash2"));
+        assertTrue(manifest.getPendingTitles().isEmpty());
+        assertFalse(Files.exists(folder.getRoot().toPath().resolve("manifest.txt.pending")));
+    }
+}
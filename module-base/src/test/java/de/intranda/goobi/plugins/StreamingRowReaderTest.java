@@ -0,0 +1,121 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StreamingRowReaderTest {
+
+    private static final String MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    // the sheet contains shared and inline strings, cached formula results, a bold cell, sparse cells and rows and cells without reference
+    private static final String SHEET = "<worksheet xmlns=\"" + MAIN + "\"><sheetData>"
+            + "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"inlineStr\"><is><t>Label</t></is></c></row>"
+            + "<row r=\"3\"><c r=\"B3\" t=\"s\" s=\"1\"><v>1</v></c><c r=\"E3\" t=\"str\"><f>B3&amp;\"x\"</f><v>CR_1x</v></c>"
+            + "<c r=\"F3\"><f>1+1</f><v>2</v></c></row>"
+            + "<row><c t=\"inlineStr\"><is><t>no reference</t></is></c><c><v>42</v></c></row>"
+            + "<row><c r=\"C5\" t=\"b\"><v>1</v></c></row>"
+            + "</sheetData></worksheet>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * write a minimal xlsx file with a single sheet
+     */
+    private File writeWorkbook(String sheet) throws IOException {
+        File file = folder.newFile("import.xlsx");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            addEntry(zip, "[Content_Types].xml", "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                    + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                    + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                    + "<Override PartName=\"/xl/workbook.xml\" "
+                    + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                    + "<Override PartName=\"/xl/worksheets/sheet1.xml\" "
+                    + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+                    + "<Override PartName=\"/xl/styles.xml\" "
+                    + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+                    + "<Override PartName=\"/xl/sharedStrings.xml\" "
+                    + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>"
+                    + "</Types>");
+            addEntry(zip, "_rels/.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIPS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                    + "</Relationships>");
+            addEntry(zip, "xl/workbook.xml", "<workbook xmlns=\"" + MAIN + "\" xmlns:r=\"" + RELATIONSHIPS + "\">"
+                    + "<sheets><sheet name=\"Series A\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+            addEntry(zip, "xl/_rels/workbook.xml.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIPS + "/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+                    + "<Relationship Id=\"rId2\" Type=\"" + RELATIONSHIPS + "/styles\" Target=\"styles.xml\"/>"
+                    + "<Relationship Id=\"rId3\" Type=\"" + RELATIONSHIPS + "/sharedStrings\" Target=\"sharedStrings.xml\"/>"
+                    + "</Relationships>");
+            addEntry(zip, "xl/styles.xml", "<styleSheet xmlns=\"" + MAIN + "\">"
+                    + "<fonts count=\"2\"><font><sz val=\"11\"/></font><font><b/><sz val=\"11\"/></font></fonts>"
+                    + "<fills count=\"1\"><fill><patternFill patternType=\"none\"/></fill></fills>"
+                    + "<borders count=\"1\"><border/></borders>"
+                    + "<cellStyleXfs count=\"1\"><xf fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                    + "<cellXfs count=\"2\"><xf fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                    + "<xf fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/></cellXfs>"
+                    + "</styleSheet>");
+            addEntry(zip, "xl/sharedStrings.xml", "<sst xmlns=\"" + MAIN + "\" count=\"2\" uniqueCount=\"2\">"
+                    + "<si><t>Identifier</t></si><si><t>CR_1</t></si></sst>");
+            addEntry(zip, "xl/worksheets/sheet1.xml", sheet);
+        }
+        return file;
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + content).getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    @Test
+    public void testReadRows() throws IOException {
+        try (StreamingRowReader reader = new StreamingRowReader(writeWorkbook(SHEET))) {
+            SheetRow header = reader.next();
+            assertEquals(0, header.getRowNumber());
+            assertArrayEquals(new String[] { "Identifier", "Label" }, header.getValues());
+            assertFalse(header.isProcess());
+
+            SheetRow row = reader.next();
+            assertEquals(2, row.getRowNumber());
+            assertArrayEquals(new String[] { null, "CR_1", null, null, "CR_1x", "2" }, row.getValues());
+            assertEquals(1, row.getHierarchy());
+            assertEquals("CR_1", row.getFirstValue());
+            assertEquals("CR_1x", row.getSecondValue());
+            assertTrue(row.isProcess());
+
+            // rows and cells without reference follow the previous ones
+            row = reader.next();
+            assertEquals(3, row.getRowNumber());
+            assertArrayEquals(new String[] { "no reference", "42" }, row.getValues());
+            assertFalse(row.isProcess());
+
+            row = reader.next();
+            assertEquals(4, row.getRowNumber());
+            assertArrayEquals(new String[] { null, null, "true" }, row.getValues());
+            assertEquals(2, row.getHierarchy());
+
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void testSheetNames() throws IOException {
+        assertEquals(Collections.singletonList("Series A"), StreamingRowReader.getSheetNames(writeWorkbook(SHEET)));
+    }
+}
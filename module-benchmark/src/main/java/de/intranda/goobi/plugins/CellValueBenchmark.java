@@ -0,0 +1,115 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads all cells of an in-memory workbook with {@link WorkbookRowReader#getCellValue(Cell, FormulaEvaluator)}. The cells are strings, numbers,
+ * booleans and formulas, the share of formula cells can be changed. The evaluator is either shared by all cells, created for each cell as the
+ * import did before, or not used at all, so the cached formula results are read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CellValueBenchmark {
+
+    private static final int COLUMNS = 10;
+
+    @Param({ "1000" })
+    private int rows;
+
+    @Param({ "0", "10" })
+    private int formulaPercent;
+
+    @Param({ "shared", "perCell", "cached" })
+    private String evaluation;
+
+    private Workbook workbook;
+
+    private List<Cell> cells;
+
+    private FormulaEvaluator sharedEvaluator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet();
+        cells = new ArrayList<>(rows * COLUMNS);
+        for (int r = 0; r < rows; r++) {
+            Row row = sheet.createRow(r);
+            for (int c = 0; c < COLUMNS; c++) {
+                Cell cell = row.createCell(c);
+                int kind = random.nextInt(100);
+                if (kind < formulaPercent && r > 0) {
+                    // reference the cell above, so the evaluator follows a chain of cells
+                    cell.setCellFormula(c % 2 == 0 ? "A" + r + "&\"-\"&" + (r + 1) : "LEN(B" + r + ")+" + c);
+                } else if (kind < 70) {
+                    cell.setCellValue(ImportFixture.createValue("Title", random, 1 + random.nextInt(6)));
+                } else if (kind < 95) {
+                    cell.setCellValue(random.nextInt(100000));
+                } else {
+                    cell.setCellValue(random.nextBoolean());
+                }
+                cells.add(cell);
+            }
+        }
+        sharedEvaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        // store the results, so the cached mode can read them
+        sharedEvaluator.evaluateAll();
+        sharedEvaluator.clearAllCachedResultValues();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public void getCellValue(Blackhole blackhole) {
+        // each import starts with an empty cache
+        sharedEvaluator.clearAllCachedResultValues();
+        for (Cell cell : cells) {
+            FormulaEvaluator evaluator;
+            switch (evaluation) {
+                case "perCell":
+                    evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+                    break;
+                case "cached":
+                    evaluator = null;
+                    break;
+                default:
+                    evaluator = sharedEvaluator;
+                    break;
+            }
+            blackhole.consume(WorkbookRowReader.getCellValue(cell, evaluator));
+        }
+    }
+}
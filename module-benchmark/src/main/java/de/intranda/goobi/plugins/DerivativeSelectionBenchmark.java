@@ -0,0 +1,99 @@
+package de.intranda.goobi.plugins;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the derivative selection with the former nested file name scans on a synthetic image folder. Every image exists as jpg, every second
+ * one as tif and every fifth one as edited tif.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DerivativeSelectionBenchmark {
+
+    @Param({ "1000", "10000" })
+    private int images;
+
+    private List<Path> files;
+
+    private DerivativeSelection selection;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        files = new ArrayList<>();
+        for (int i = 0; i < images; i++) {
+            String name = String.format("CR_1_%06d", i);
+            files.add(Paths.get("/images", name + ".jpg"));
+            if (i % 2 == 0) {
+                files.add(Paths.get("/images", name + ".tif"));
+            }
+            if (i % 5 == 0) {
+                files.add(Paths.get("/images", name + "_bearbeitet.tif"));
+            }
+        }
+        files.sort(null);
+        selection = new DerivativeSelection(DerivativeSelection.DEFAULT_SUFFIXES);
+    }
+
+    @Benchmark
+    public List<Path> derivativeSelection() {
+        return selection.select(files);
+    }
+
+    /**
+     * the selection as it was implemented in generateFiles before
+     */
+    @Benchmark
+    public List<Path> nestedScan() {
+        List<Path> selected = new ArrayList<>();
+        for (Path fileToCopy : files) {
+            String filename = fileToCopy.getFileName().toString();
+            boolean containsEdited = filename.contains("bearbeitet");
+            boolean betterFileExists = false;
+            if (!containsEdited && (filename.endsWith(".jpg") || filename.endsWith(".tif"))) {
+                String editFileName = filename.replace(".jpg", "").replace(".tif", "") + "_bearbeitet.tif";
+                for (Path fileToCheck : files) {
+                    if (editFileName.equals(fileToCheck.getFileName().toString())) {
+                        betterFileExists = true;
+                        break;
+                    }
+                }
+            }
+            if (filename.endsWith(".jpg")) {
+                String tifFilename = filename.replace(".jpg", ".tif");
+                for (Path fileToCheck : files) {
+                    if (tifFilename.equals(fileToCheck.getFileName().toString())) {
+                        betterFileExists = true;
+                        break;
+                    }
+                }
+                if (!betterFileExists) {
+                    selected.add(fileToCopy);
+                }
+            } else {
+                selected.add(fileToCopy);
+            }
+        }
+        return selected;
+    }
+}
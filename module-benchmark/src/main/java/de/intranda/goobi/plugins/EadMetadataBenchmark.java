@@ -0,0 +1,84 @@
+package de.intranda.goobi.plugins;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.goobi.interfaces.IEadEntry;
+import org.goobi.interfaces.IMetadataField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.intranda.goobi.plugins.ColumnBindingPlan.GroupBinding;
+
+/**
+ * Adds the metadata of 100 rows to ead nodes. Each row gets a new node of {@link EadStandIns}, because the values are appended to the fields. The
+ * {@code createEntry} benchmark measures the creation of the nodes alone and can be subtracted from the other results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EadMetadataBenchmark {
+
+    private static final int ROWS = 100;
+
+    private CrownImportConfig config;
+
+    private CrownImportPlugin plugin;
+
+    private ColumnBindingPlan plan;
+
+    private List<RowData> data;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        config = ImportFixture.loadConfig(Map.of());
+        plugin = ImportFixture.createPlugin(config, null);
+        List<String> columnNames = ImportFixture.getColumnNames(config);
+        HeaderIndex header = ImportFixture.createHeader(columnNames, 0);
+        plan = plugin.compileBindingPlan(header);
+        data = ImportFixture.createRows(header, columnNames, ROWS, 42);
+    }
+
+    @Benchmark
+    public void createEntry(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(EadStandIns.createEntry(config));
+        }
+    }
+
+    @Benchmark
+    public void createEadMetadata(Blackhole blackhole) {
+        for (RowData row : data) {
+            IEadEntry entry = EadStandIns.createEntry(config);
+            plugin.createEadMetadata(entry, row.getFirstValue(), row.getSecondValue(), true, row, plan);
+            blackhole.consume(entry);
+        }
+    }
+
+    @Benchmark
+    public void addGroupMetadata(Blackhole blackhole) {
+        for (RowData row : data) {
+            IEadEntry entry = EadStandIns.createEntry(config);
+            EadFieldIndex fields = new EadFieldIndex(entry);
+            for (GroupBinding group : plan.getGroups()) {
+                IMetadataField field = fields.getField(group.getLevel(), group.getEadName());
+                plugin.addGroupMetadata(fields, row, group, field);
+            }
+            blackhole.consume(entry);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package de.intranda.goobi.plugins;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import org.goobi.interfaces.IArchiveManagementAdministrationPlugin;
+import org.goobi.interfaces.IEadEntry;
+import org.goobi.interfaces.IFieldValue;
+import org.goobi.interfaces.IMetadataField;
+import org.goobi.interfaces.IMetadataGroup;
+import org.goobi.interfaces.INodeType;
+
+/**
+ * In-memory replacements for the archive management plugin and its ead nodes. The objects are dynamic proxies: setters store the value, getters
+ * return the stored value and all other methods return a default value. Only the methods used by the import have a real implementation:
+ * <ul>
+ * <li>the archive creates a new child of the selected node with {@code addNode()}</li>
+ * <li>each node returns itself and all nodes below it with {@code getAllNodes()}</li>
+ * <li>each node contains the fields of the configuration in the area of their level</li>
+ * <li>fields create values and groups with the configured sub fields</li>
+ * </ul>
+ */
+public final class EadStandIns {
+
+    private static final String[] AREAS = { "IdentityStatementAreaList", "ContextAreaList", "ContentAndStructureAreaAreaList",
+            "AccessAndUseAreaList", "AlliedMaterialsAreaList", "NotesAreaList", "DescriptionControlAreaList" };
+
+    private static final Map<Class<?>, Object> DEFAULT_VALUES = Map.of(boolean.class, false, byte.class, (byte) 0, short.class, (short) 0,
+            char.class, (char) 0, int.class, 0, long.class, 0L, float.class, 0f, double.class, 0d);
+
+    private EadStandIns() {
+    }
+
+    /**
+     * Create an archive with an empty root node. The node types 'folder' and 'file' are configured.
+     *
+     * @param config the configuration, defines the fields of the nodes
+     * @return the archive
+     */
+    public static IArchiveManagementAdministrationPlugin createArchive(CrownImportConfig config) {
+        Map<Integer, Map<String, List<String>>> fields = getConfiguredFields(config);
+        IEadEntry root = createEntry(fields, null);
+        StandIn archive = new StandIn();
+        archive.properties.put("RootElement", root);
+        archive.properties.put("SelectedEntry", root);
+        archive.methods.put("addNode", (method, args) -> {
+            IEadEntry parent = (IEadEntry) archive.properties.get("SelectedEntry");
+            IEadEntry child = createEntry(fields, parent);
+            getList(parent, "SubEntryList").add(child);
+            archive.properties.put("SelectedEntry", child);
+            return null;
+        });
+        List<INodeType> nodeTypes = new ArrayList<>();
+        for (String name : new String[] { "folder", "file" }) {
+            StandIn nodeType = new StandIn();
+            nodeType.properties.put("NodeName", name);
+            nodeTypes.add(nodeType.create(INodeType.class));
+        }
+        // the type of the configuration is not referenced, the proxy is created for the declared return type
+        archive.methods.put("getConfig", (method, args) -> {
+            StandIn archiveConfig = new StandIn();
+            archiveConfig.properties.put("ConfiguredNodes", nodeTypes);
+            return archiveConfig.create(method.getReturnType());
+        });
+        return archive.create(IArchiveManagementAdministrationPlugin.class);
+    }
+
+    /**
+     * Create a node without parent
+     *
+     * @param config the configuration, defines the fields of the node
+     * @return the node
+     */
+    public static IEadEntry createEntry(CrownImportConfig config) {
+        return createEntry(getConfiguredFields(config), null);
+    }
+
+    private static IEadEntry createEntry(Map<Integer, Map<String, List<String>>> fields, IEadEntry parent) {
+        StandIn entry = new StandIn();
+        entry.properties.put("ParentNode", parent);
+        entry.properties.put("Hierarchy", parent == null ? 0 : parent.getHierarchy() + 1);
+        entry.properties.put("SubEntryList", new ArrayList<IEadEntry>());
+        for (int level = 1; level <= AREAS.length; level++) {
+            List<IMetadataField> area = new ArrayList<>();
+            for (Map.Entry<String, List<String>> field : fields.getOrDefault(level, Map.of()).entrySet()) {
+                area.add(createField(field.getKey(), field.getValue()));
+            }
+            entry.properties.put(AREAS[level - 1], area);
+        }
+        IEadEntry created = entry.create(IEadEntry.class);
+        entry.methods.put("getAllNodes", (method, args) -> {
+            List<IEadEntry> nodes = new ArrayList<>();
+            addAllNodes(created, nodes);
+            return nodes;
+        });
+        return created;
+    }
+
+    private static void addAllNodes(IEadEntry entry, List<IEadEntry> nodes) {
+        nodes.add(entry);
+        for (IEadEntry child : entry.getSubEntryList()) {
+            addAllNodes(child, nodes);
+        }
+    }
+
+    /**
+     * Create a metadata field
+     *
+     * @param name name of the field
+     * @param subfieldNames names of the sub fields, an empty list if the field is not a group
+     * @return the field
+     */
+    public static IMetadataField createField(String name, List<String> subfieldNames) {
+        StandIn field = new StandIn();
+        field.properties.put("Name", name);
+        field.properties.put("FieldType", "text");
+        field.properties.put("Values", new ArrayList<IFieldValue>());
+        List<IMetadataField> subfields = new ArrayList<>();
+        for (String subfieldName : subfieldNames) {
+            subfields.add(createField(subfieldName, List.of()));
+        }
+        field.properties.put("Subfields", subfields);
+        field.properties.put("Groups", new ArrayList<IMetadataGroup>());
+        field.methods.put("createFieldValue", (method, args) -> new StandIn().create(IFieldValue.class));
+        field.methods.put("createGroup", (method, args) -> {
+            StandIn group = new StandIn();
+            List<IMetadataField> groupFields = new ArrayList<>();
+            for (String subfieldName : subfieldNames) {
+                groupFields.add(createField(subfieldName, List.of()));
+            }
+            group.properties.put("Fields", groupFields);
+            IMetadataGroup created = group.create(IMetadataGroup.class);
+            getList(field, "Groups").add(created);
+            return created;
+        });
+        return field.create(IMetadataField.class);
+    }
+
+    /**
+     * collect the ead names of all configured fields, grouped by their level
+     */
+    private static Map<Integer, Map<String, List<String>>> getConfiguredFields(CrownImportConfig config) {
+        Map<Integer, Map<String, List<String>>> fields = new HashMap<>();
+        addField(fields, config.getFirstColumn().getLevel(), config.getFirstColumn().getEadName(), List.of());
+        if (config.getSecondColumn() != null) {
+            addField(fields, config.getSecondColumn().getLevel(), config.getSecondColumn().getEadName(), List.of());
+        }
+        for (MetadataColumn column : config.getColumnList()) {
+            addField(fields, column.getLevel(), column.getEadName(), List.of());
+        }
+        for (PersonColumn column : config.getPersonList()) {
+            addField(fields, column.getLevel(), column.getEadName(), List.of());
+        }
+        for (CorporateColumn column : config.getCorpList()) {
+            addField(fields, column.getLevel(), column.getEadName(), List.of());
+        }
+        for (GroupColumns group : config.getGroupList()) {
+            List<String> subfieldNames = new ArrayList<>();
+            for (MetadataColumn column : group.getMetadataList()) {
+                subfieldNames.add(column.getEadName());
+            }
+            addField(fields, group.getLevel(), group.getEadName(), subfieldNames);
+        }
+        return fields;
+    }
+
+    private static void addField(Map<Integer, Map<String, List<String>>> fields, int level, String name, List<String> subfieldNames) {
+        if (name != null) {
+            fields.computeIfAbsent(level, l -> new LinkedHashMap<>()).putIfAbsent(name, subfieldNames);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> getList(Object proxy, String property) {
+        return (List<T>) ((StandIn) Proxy.getInvocationHandler(proxy)).properties.get(property);
+    }
+
+    /**
+     * the state of a single proxy
+     */
+    private static final class StandIn implements InvocationHandler {
+
+        private final Map<String, Object> properties = new HashMap<>();
+        private final Map<String, BiFunction<Method, Object[], Object>> methods = new HashMap<>();
+
+        private <T> T create(Class<T> type) {
+            return type.cast(Proxy.newProxyInstance(EadStandIns.class.getClassLoader(), new Class<?>[] { type }, this));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            int count = args == null ? 0 : args.length;
+            if ("equals".equals(name) && count == 1) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name) && count == 0) {
+                return System.identityHashCode(proxy);
+            } else if ("toString".equals(name) && count == 0) {
+                return "StandIn[" + properties.get("Name") + "]";
+            }
+            BiFunction<Method, Object[], Object> implementation = methods.get(name);
+            if (implementation != null) {
+                return implementation.apply(method, args);
+            }
+            if (name.startsWith("set") && count == 1) {
+                properties.put(name.substring(3), args[0]);
+                return null;
+            }
+            if (count == 0) {
+                String property = null;
+                if (name.startsWith("get")) {
+                    property = name.substring(3);
+                } else if (name.startsWith("is")) {
+                    property = name.substring(2);
+                }
+                Object value = property == null ? null : properties.get(property);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return DEFAULT_VALUES.get(method.getReturnType());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.SubnodeConfiguration;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.configuration.tree.xpath.XPathExpressionEngine;
+
+import ugh.dl.Prefs;
+import ugh.exceptions.PreferencesException;
+
+/**
+ * Configuration, ruleset and data for the benchmarks. The configuration {@code benchmark_config.xml} and the {@code ruleset.xml} of the repository
+ * are read from the class path. Cell values are created with a fixed seed, so every run uses the same data.
+ */
+public final class ImportFixture {
+
+    private static final String[] WORDS = { "Krone", "Reich", "Urkunde", "Siegel", "Kaiser", "Brief", "Abschrift", "Pergament", "Wien", "Aachen",
+            "Nürnberg", "Inventar", "Schatzkammer", "Reliquie", "Zepter", "Reichsapfel", "Gold", "Perle", "Saphir", "Email" };
+
+    // columns that contain the role of a person or corporate and the value used for them
+    private static final Map<String, String> ROLE_COLUMNS = Map.of("Role", "Author");
+
+    private static final String NODE_TYPE_COLUMN = "Level of description";
+
+    private ImportFixture() {
+    }
+
+    /**
+     * Read the ruleset of the repository
+     *
+     * @return the ruleset
+     */
+    public static Prefs loadRuleset() throws IOException, PreferencesException {
+        Path rulesetFile = Files.createTempFile("ruleset", ".xml");
+        try (InputStream in = ImportFixture.class.getResourceAsStream("/ruleset.xml")) {
+            if (in == null) {
+                throw new IOException("ruleset.xml is missing in the class path");
+            }
+            Files.copy(in, rulesetFile, StandardCopyOption.REPLACE_EXISTING);
+            Prefs prefs = new Prefs();
+            prefs.loadPrefs(rulesetFile.toString());
+            return prefs;
+        } finally {
+            Files.deleteIfExists(rulesetFile);
+        }
+    }
+
+    /**
+     * Read the benchmark configuration
+     *
+     * @param properties values that replace the configured values, the keys are XPath expressions relative to the config element, e.g.
+     *            {@code /streamingReader}. The elements must exist in the configuration.
+     * @return the configuration
+     */
+    public static CrownImportConfig loadConfig(Map<String, Object> properties) throws ConfigurationException {
+        XMLConfiguration xmlConfig = new XMLConfiguration(ImportFixture.class.getResource("/benchmark_config.xml"));
+        xmlConfig.setExpressionEngine(new XPathExpressionEngine());
+        SubnodeConfiguration templateConfig = xmlConfig.configurationAt("//config[./template = '*']");
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            if (!templateConfig.containsKey(property.getKey())) {
+                throw new IllegalArgumentException("Unknown configuration element " + property.getKey());
+            }
+            templateConfig.setProperty(property.getKey(), property.getValue());
+        }
+        return new CrownImportConfig(templateConfig, 0);
+    }
+
+    /**
+     * Create a plugin that uses the given configuration and ruleset instead of the files of the goobi installation
+     *
+     * @param config the configuration
+     * @param prefs the ruleset
+     * @return the plugin
+     */
+    public static CrownImportPlugin createPlugin(CrownImportConfig config, Prefs prefs) {
+        CrownImportPlugin plugin = new CrownImportPlugin();
+        plugin.setWorkflowName("benchmark");
+        plugin.setConfig(config);
+        plugin.setPrefs(prefs);
+        return plugin;
+    }
+
+    /**
+     * Get the names of all columns used by the configuration, in the order of the configuration
+     *
+     * @param config the configuration
+     * @return the column names
+     */
+    public static List<String> getColumnNames(CrownImportConfig config) {
+        Set<String> names = new LinkedHashSet<>();
+        addName(names, config.getNodeTypeColumnName());
+        addName(names, config.getFirstColumn().getAuthorityColumnName());
+        if (config.getSecondColumn() != null) {
+            addName(names, config.getSecondColumn().getAuthorityColumnName());
+        }
+        for (MetadataColumn column : config.getColumnList()) {
+            addName(names, column.getExcelColumnName());
+            addName(names, column.getAuthorityColumnName());
+        }
+        for (PersonColumn column : config.getPersonList()) {
+            addName(names, column.getNameColumnName());
+            addName(names, column.getFirstColumnName());
+            addName(names, column.getAuthorityColumnName());
+        }
+        for (CorporateColumn column : config.getCorpList()) {
+            addName(names, column.getNameColumnName());
+            addName(names, column.getSubNameColumnName());
+            addName(names, column.getPartNameColumnName());
+            addName(names, column.getAuthorityColumnName());
+        }
+        for (GroupColumns group : config.getGroupList()) {
+            for (MetadataColumn column : group.getMetadataList()) {
+                addName(names, column.getExcelColumnName());
+                addName(names, column.getAuthorityColumnName());
+            }
+        }
+        names.addAll(ROLE_COLUMNS.keySet());
+        return new ArrayList<>(names);
+    }
+
+    private static void addName(Set<String> names, String name) {
+        if (name != null && !name.isBlank()) {
+            names.add(name);
+        }
+    }
+
+    /**
+     * Create the header of a sheet that contains the given columns
+     *
+     * @param columnNames the column names
+     * @param offset index of the first column
+     * @return the header
+     */
+    public static HeaderIndex createHeader(List<String> columnNames, int offset) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            columns.put(columnNames.get(i), offset + i);
+        }
+        return new HeaderIndex(columns);
+    }
+
+    /**
+     * Create the value of a column. Authority columns contain a number, name columns a name with first and last name, role columns a role of the
+     * ruleset, all other columns some words.
+     *
+     * @param columnName name of the column
+     * @param random source of the values
+     * @param words number of words for text columns
+     * @return the value
+     */
+    public static String createValue(String columnName, Random random, int words) {
+        if (ROLE_COLUMNS.containsKey(columnName)) {
+            return ROLE_COLUMNS.get(columnName);
+        } else if (NODE_TYPE_COLUMN.equals(columnName)) {
+            return random.nextBoolean() ? "file" : "folder";
+        } else if (columnName.startsWith("GND")) {
+            return String.valueOf(100000000 + random.nextInt(900000000));
+        } else if (columnName.startsWith("Author") || columnName.startsWith("Person")) {
+            return createWord(random) + ", " + createWord(random);
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(createWord(random));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @param columnName name of the column
+     * @return true, if {@link #createValue(String, Random, int)} creates free text for this column
+     */
+    public static boolean isTextColumn(String columnName) {
+        return !ROLE_COLUMNS.containsKey(columnName) && !NODE_TYPE_COLUMN.equals(columnName) && !columnName.startsWith("GND")
+                && !columnName.startsWith("Author") && !columnName.startsWith("Person");
+    }
+
+    /**
+     * @param random source of the word
+     * @return a single word
+     */
+    public static String createWord(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /**
+     * Create rows with values for all given columns
+     *
+     * @param header the header, created with {@link #createHeader(List, int)} and offset 0
+     * @param columnNames the column names
+     * @param count number of rows
+     * @param seed seed of the random values
+     * @return the rows
+     */
+    public static List<RowData> createRows(HeaderIndex header, List<String> columnNames, int count, long seed) {
+        Random random = new Random(seed);
+        List<RowData> rows = new ArrayList<>(count);
+        for (int row = 0; row < count; row++) {
+            String[] values = new String[columnNames.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = createValue(columnNames.get(i), random, 1 + random.nextInt(8));
+            }
+            rows.add(new RowData(header, values, String.format("CR_%06d", row), createValue("Title", random, 4)));
+        }
+        return Collections.unmodifiableList(rows);
+    }
+}
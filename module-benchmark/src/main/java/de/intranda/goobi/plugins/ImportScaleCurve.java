@@ -0,0 +1,181 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.goobi.production.importer.ImportObject;
+import org.goobi.production.importer.Record;
+
+import com.sun.management.ThreadMXBean;
+
+import ugh.dl.Prefs;
+
+/**
+ * Runs {@link CrownImportPlugin#generateRecordsFromFile()} and {@link CrownImportPlugin#generateFiles(List)} on generated workbooks of increasing
+ * size and appends wall time, peak heap and allocation of each phase to a csv file. Runs of different versions can be written into the same file
+ * and compared by their label.
+ *
+ * The ead nodes are created in memory, the METS files are written into a temporary folder. The workbooks don't reference any images.
+ *
+ * <pre>
+ * java -Xmx4g -cp module-benchmark/target/benchmarks.jar de.intranda.goobi.plugins.ImportScaleCurve --label=dev --sizes=1000,10000,100000
+ * </pre>
+ *
+ * Options: label, sizes, output (default scale-curve.csv), depth, fanOut, boldShare, columns, textLength, formulaShare, streamingReader,
+ * formulas (evaluate or cached) and processThreads.
+ *
+ * The peak heap is the sum of the peak usage of all heap pools since the start of the phase, so it is an upper bound of the real peak.
+ */
+public final class ImportScaleCurve {
+
+    private static final String CSV_HEADER = "label,rows,phase,records,wallMillis,peakHeapMB,allocatedMB,allocationRateMBs,"
+            + "depth,fanOut,boldShare,columns,textLength,formulaShare,streamingReader,formulas,processThreads";
+
+    private static final double MB = 1024d * 1024d;
+
+    private ImportScaleCurve() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int pos = arg.indexOf('=');
+            if (!arg.startsWith("--") || pos == -1) {
+                throw new IllegalArgumentException("Options must be passed as --name=value: " + arg);
+            }
+            options.put(arg.substring(2, pos), arg.substring(pos + 1));
+        }
+        String label = options.getOrDefault("label", "dev");
+        Path output = Paths.get(options.getOrDefault("output", "scale-curve.csv"));
+        int depth = Integer.parseInt(options.getOrDefault("depth", "3"));
+        int fanOut = Integer.parseInt(options.getOrDefault("fanOut", "10"));
+        double boldShare = Double.parseDouble(options.getOrDefault("boldShare", "0.75"));
+        int columns = Integer.parseInt(options.getOrDefault("columns", "-1"));
+        int textLength = Integer.parseInt(options.getOrDefault("textLength", "40"));
+        double formulaShare = Double.parseDouble(options.getOrDefault("formulaShare", "0"));
+        boolean streamingReader = Boolean.parseBoolean(options.getOrDefault("streamingReader", "false"));
+        String formulas = options.getOrDefault("formulas", "evaluate");
+        int processThreads = Integer.parseInt(options.getOrDefault("processThreads", "1"));
+        List<Integer> sizes = new ArrayList<>();
+        for (String size : options.getOrDefault("sizes", "1000,10000,50000,100000").split(",")) {
+            sizes.add(Integer.parseInt(size.trim()));
+        }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("/streamingReader", streamingReader);
+        properties.put("/formulas", formulas);
+        properties.put("/processThreads", processThreads);
+        CrownImportConfig config = ImportFixture.loadConfig(properties);
+        Prefs prefs = ImportFixture.loadRuleset();
+        String settings = String.format(Locale.ROOT, "%d,%d,%s,%d,%d,%s,%s,%s,%d", depth, fanOut, boldShare, columns, textLength, formulaShare,
+                streamingReader, formulas, processThreads);
+
+        boolean newFile = !Files.exists(output);
+        try (BufferedWriter csv = Files.newBufferedWriter(output, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (newFile) {
+                csv.write(CSV_HEADER);
+                csv.newLine();
+            }
+            for (int size : sizes) {
+                Path folder = Files.createTempDirectory("crown-scale");
+                try {
+                    Path workbook = folder.resolve("import.xlsx");
+                    new SyntheticWorkbookGenerator(ImportFixture.getColumnNames(config)).rows(size)
+                            .depth(depth)
+                            .fanOut(fanOut)
+                            .boldShare(boldShare)
+                            .columns(columns)
+                            .textLength(textLength)
+                            .formulaShare(formulaShare)
+                            .write(workbook);
+
+                    CrownImportPlugin plugin = ImportFixture.createPlugin(config, prefs);
+                    plugin.setArchivePlugin(EadStandIns.createArchive(config));
+                    plugin.setFile(workbook.toFile());
+                    Path importFolder = Files.createDirectory(folder.resolve("import"));
+                    plugin.setImportFolder(importFolder.toString());
+
+                    List<Record> records = new ArrayList<>();
+                    String line = measure(() -> {
+                        records.addAll(plugin.generateRecordsFromFile());
+                        return records.size();
+                    });
+                    writeLine(csv, label, size, "generateRecordsFromFile", line, settings);
+
+                    line = measure(() -> {
+                        List<ImportObject> answer = plugin.generateFiles(records);
+                        return answer.size();
+                    });
+                    writeLine(csv, label, size, "generateFiles", line, settings);
+                    csv.flush();
+                } finally {
+                    deleteFolder(folder);
+                }
+            }
+        }
+    }
+
+    /**
+     * run a phase and measure it
+     *
+     * @return records, wall time, peak heap, allocation and allocation rate as csv values
+     */
+    private static String measure(Supplier<Integer> phase) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+        System.gc();
+        for (MemoryPoolMXBean pool : heapPools) {
+            pool.resetPeakUsage();
+        }
+        long allocatedBefore = threads.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        int records = phase.get();
+
+        long wallNanos = System.nanoTime() - start;
+        long allocated = threads.getTotalThreadAllocatedBytes() - allocatedBefore;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        double seconds = wallNanos / 1e9;
+        return String.format(Locale.ROOT, "%d,%d,%.1f,%.1f,%.1f", records, wallNanos / 1000000, peakHeap / MB, allocated / MB,
+                seconds > 0 ? allocated / MB / seconds : 0);
+    }
+
+    private static void writeLine(BufferedWriter csv, String label, int rows, String phase, String values, String settings) throws IOException {
+        String line = label + "," + rows + "," + phase + "," + values + "," + settings;
+        csv.write(line);
+        csv.newLine();
+        System.out.println(line);
+    }
+
+    private static void deleteFolder(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ugh.dl.Fileformat;
+import ugh.exceptions.UGHException;
+
+/**
+ * Creates the METS documents of 100 records with the ruleset of the repository, as it is done for each record in
+ * {@link CrownImportPlugin#generateFiles(List)}. The other benchmarks write the documents into a temporary folder as well, with the MetsMods
+ * serializer of UGH or with the {@link MetsStreamWriter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetsBenchmark {
+
+    private static final int RECORDS = 100;
+
+    private static final List<String> COLLECTIONS = List.of("Reichskrone");
+
+    private CrownImportPlugin plugin;
+
+    private ColumnBindingPlan plan;
+
+    private List<RowData> data;
+
+    private Path folder;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        CrownImportConfig config = ImportFixture.loadConfig(Map.of());
+        plugin = ImportFixture.createPlugin(config, ImportFixture.loadRuleset());
+        List<String> columnNames = ImportFixture.getColumnNames(config);
+        HeaderIndex header = ImportFixture.createHeader(columnNames, 0);
+        plan = plugin.compileBindingPlan(header);
+        Set<String> unknownTypes = plugin.resolveRulesetTypes(List.of(plan), COLLECTIONS);
+        if (!unknownTypes.isEmpty()) {
+            throw new IllegalStateException("Unknown ruleset types: " + unknownTypes);
+        }
+        data = ImportFixture.createRows(header, columnNames, RECORDS, 42);
+        folder = Files.createTempDirectory("crown-benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void createMetsFile(Blackhole blackhole) throws UGHException {
+        for (RowData row : data) {
+            blackhole.consume(plugin.createMetsFile(row, plan, COLLECTIONS));
+        }
+    }
+
+    @Benchmark
+    public void createAndWriteMetsFile() throws UGHException {
+        for (int i = 0; i < data.size(); i++) {
+            Fileformat fileformat = plugin.createMetsFile(data.get(i), plan, COLLECTIONS);
+            fileformat.write(folder.resolve(i + ".xml").toString());
+        }
+    }
+
+    @Benchmark
+    public void createAndStreamMetsFile() throws UGHException, IOException, XMLStreamException {
+        for (int i = 0; i < data.size(); i++) {
+            Fileformat fileformat = plugin.createMetsFile(data.get(i), plan, COLLECTIONS);
+            MetsStreamWriter.write(fileformat.getDigitalDocument(), folder.resolve(i + ".xml"));
+        }
+    }
+}
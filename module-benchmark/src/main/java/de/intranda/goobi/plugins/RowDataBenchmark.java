@@ -0,0 +1,126 @@
+package de.intranda.goobi.plugins;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the row storage used by the records: the former untyped list of a header map and a HashMap per row with the array based
+ * {@link RowData}.
+ *
+ * The build benchmarks create the row storage for all rows, run them with '-prof gc' to compare the allocated heap per row. The access
+ * benchmarks resolve all configured columns by their header name, as it is done when the processes are created.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowDataBenchmark {
+
+    @Param({ "1000" })
+    private int rows;
+
+    @Param({ "30", "300" })
+    private int columns;
+
+    private String[] columnNames;
+    private String[][] cellValues;
+
+    private List<List<Map<?, ?>>> mapRows;
+    private List<RowData> arrayRows;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        columnNames = new String[columns];
+        for (int i = 0; i < columns; i++) {
+            columnNames[i] = "Column " + i;
+        }
+        cellValues = new String[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                cellValues[r][c] = "value " + r + "/" + c;
+            }
+        }
+        mapRows = buildMaps();
+        arrayRows = buildRowData();
+    }
+
+    @Benchmark
+    public List<List<Map<?, ?>>> buildMaps() {
+        Map<String, Integer> headerOrder = new HashMap<>();
+        for (int i = 0; i < columns; i++) {
+            headerOrder.put(columnNames[i], i);
+        }
+        List<List<Map<?, ?>>> result = new ArrayList<>(rows);
+        for (String[] values : cellValues) {
+            Map<Integer, String> map = new HashMap<>();
+            for (int cn = 0; cn < values.length; cn++) {
+                map.put(cn, values[cn]);
+            }
+            map.put(999, values[0]);
+            map.put(998, values[1]);
+            List<Map<?, ?>> list = new ArrayList<>();
+            list.add(headerOrder);
+            list.add(map);
+            result.add(list);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<RowData> buildRowData() {
+        Map<String, Integer> headerColumns = new HashMap<>();
+        for (int i = 0; i < columns; i++) {
+            headerColumns.put(columnNames[i], i);
+        }
+        HeaderIndex header = new HeaderIndex(headerColumns);
+        List<RowData> result = new ArrayList<>(rows);
+        for (String[] values : cellValues) {
+            String[] copy = new String[values.length];
+            System.arraycopy(values, 0, copy, 0, values.length);
+            result.add(new RowData(header, copy, values[0], values[1]));
+        }
+        return result;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void accessMaps(Blackhole blackhole) {
+        for (List<Map<?, ?>> list : mapRows) {
+            Map<String, Integer> headerMap = (Map<String, Integer>) list.get(0);
+            Map<Integer, String> data = (Map<Integer, String>) list.get(1);
+            blackhole.consume(data.get(999));
+            for (String name : columnNames) {
+                blackhole.consume(data.get(headerMap.get(name)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void accessRowData(Blackhole blackhole) {
+        for (RowData data : arrayRows) {
+            blackhole.consume(data.getFirstValue());
+            for (String name : columnNames) {
+                blackhole.consume(data.get(name));
+            }
+        }
+    }
+}
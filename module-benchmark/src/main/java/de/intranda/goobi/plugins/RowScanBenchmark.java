@@ -0,0 +1,68 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.goobi.production.importer.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs {@link CrownImportPlugin#generateRecordsFromFile()} on a generated workbook. The ead nodes are created in the in-memory archive of
+ * {@link EadStandIns}, so the benchmark covers reading the rows, finding the parent nodes and adding the metadata to the nodes.
+ *
+ * The workbook is created by the {@link SyntheticWorkbookGenerator} with three hierarchy levels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowScanBenchmark {
+
+    @Param({ "1000", "10000" })
+    private int rows;
+
+    @Param({ "false", "true" })
+    private boolean streamingReader;
+
+    private Path workbookFile;
+
+    private CrownImportConfig config;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        config = ImportFixture.loadConfig(Map.of("/streamingReader", streamingReader));
+        workbookFile = Files.createTempFile("crown-benchmark", ".xlsx");
+        new SyntheticWorkbookGenerator(ImportFixture.getColumnNames(config)).rows(rows).depth(3).fanOut(3).write(workbookFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(workbookFile);
+    }
+
+    @Benchmark
+    public List<Record> generateRecordsFromFile() {
+        CrownImportPlugin plugin = ImportFixture.createPlugin(config, null);
+        plugin.setArchivePlugin(EadStandIns.createArchive(config));
+        plugin.setFile(workbookFile.toFile());
+        return plugin.generateRecordsFromFile();
+    }
+}
@@ -0,0 +1,223 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.streaming.SXSSFFormulaEvaluator;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Writes xlsx files in the format of the import. The rows are written with the streaming API of POI, so workbooks with several hundred thousand
+ * rows can be created with little memory.
+ *
+ * The sheet starts with a header row. The first columns contain the hierarchy: the identifier of a row is written into the column of its level,
+ * the label into the column after the hierarchy. The first row is the root node, all other rows form a tree with the configured depth, each node
+ * has up to {@code fanOut} children. The metadata columns follow the label, their names are taken from the given list. Additional columns get the
+ * name 'Column n' and are not used by the import. Formula cells concatenate the label of the row with a text, their result is stored in the file.
+ *
+ * All values are created with a fixed seed, the same options always create the same workbook.
+ */
+public class SyntheticWorkbookGenerator {
+
+    private final List<String> columnNames;
+
+    private int rows = 1000;
+    private int depth = 3;
+    private int fanOut = 10;
+    private double boldShare = 0.75;
+    private int columns = -1;
+    private int textLength = 40;
+    private double formulaShare;
+    private long seed = 42;
+
+    /**
+     * @param columnNames names of the metadata columns, usually the columns of the configuration
+     */
+    public SyntheticWorkbookGenerator(List<String> columnNames) {
+        this.columnNames = columnNames;
+    }
+
+    /**
+     * @param rows number of data rows
+     */
+    public SyntheticWorkbookGenerator rows(int rows) {
+        this.rows = rows;
+        return this;
+    }
+
+    /**
+     * @param depth number of hierarchy columns, at least 2
+     */
+    public SyntheticWorkbookGenerator depth(int depth) {
+        if (depth < 2) {
+            throw new IllegalArgumentException("The hierarchy needs at least two levels");
+        }
+        this.depth = depth;
+        return this;
+    }
+
+    /**
+     * @param fanOut maximum number of children of a node below the root
+     */
+    public SyntheticWorkbookGenerator fanOut(int fanOut) {
+        this.fanOut = Math.max(1, fanOut);
+        return this;
+    }
+
+    /**
+     * @param boldShare share of the rows below the root that are formatted bold and create a process, 0-1
+     */
+    public SyntheticWorkbookGenerator boldShare(double boldShare) {
+        this.boldShare = boldShare;
+        return this;
+    }
+
+    /**
+     * @param columns number of metadata columns, -1 to use the given column names
+     */
+    public SyntheticWorkbookGenerator columns(int columns) {
+        this.columns = columns;
+        return this;
+    }
+
+    /**
+     * @param textLength length of the text in the metadata cells
+     */
+    public SyntheticWorkbookGenerator textLength(int textLength) {
+        this.textLength = Math.max(1, textLength);
+        return this;
+    }
+
+    /**
+     * @param formulaShare share of the metadata cells that contain a formula, 0-1
+     */
+    public SyntheticWorkbookGenerator formulaShare(double formulaShare) {
+        this.formulaShare = formulaShare;
+        return this;
+    }
+
+    /**
+     * @param seed seed of the random values
+     */
+    public SyntheticWorkbookGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * write the workbook
+     *
+     * @param file the xlsx file
+     */
+    public void write(Path file) throws IOException {
+        Random random = new Random(seed);
+        List<String> names = getMetadataColumnNames();
+        int labelColumn = depth;
+        int firstMetadataColumn = depth + 1;
+        String labelReference = CellReference.convertNumToColString(labelColumn);
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            Font boldFont = workbook.createFont();
+            boldFont.setBold(true);
+            CellStyle boldStyle = workbook.createCellStyle();
+            boldStyle.setFont(boldFont);
+            SXSSFFormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+
+            SXSSFSheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < depth; i++) {
+                header.createCell(i).setCellValue("Level " + (i + 1));
+            }
+            header.createCell(labelColumn).setCellValue("Label");
+            for (int i = 0; i < names.size(); i++) {
+                header.createCell(firstMetadataColumn + i).setCellValue(names.get(i));
+            }
+
+            // number of children of the current node on each level
+            int[] children = new int[depth];
+            int level = 0;
+            for (int r = 0; r < rows; r++) {
+                Row row = sheet.createRow(r + 1);
+                Cell idCell = row.createCell(level);
+                idCell.setCellValue(String.format("CR_%07d", r));
+                if (r > 0 && random.nextDouble() < boldShare) {
+                    idCell.setCellStyle(boldStyle);
+                }
+                row.createCell(labelColumn).setCellValue(createText(random));
+                for (int i = 0; i < names.size(); i++) {
+                    Cell cell = row.createCell(firstMetadataColumn + i);
+                    if (random.nextDouble() < formulaShare) {
+                        cell.setCellFormula(labelReference + (r + 2) + "&\" " + i + "\"");
+                        evaluator.evaluateFormulaCell(cell);
+                    } else if (i < columnNames.size()) {
+                        cell.setCellValue(createValue(names.get(i), random));
+                    } else {
+                        cell.setCellValue(createText(random));
+                    }
+                }
+                children[level]++;
+                level = getNextLevel(level, children);
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * the next row is a child of the current row, until the deepest level is reached. Then it is a sibling, or a sibling of the nearest ancestor
+     * with less than fanOut children.
+     */
+    private int getNextLevel(int level, int[] children) {
+        if (level + 1 < depth) {
+            children[level + 1] = 0;
+            return level + 1;
+        }
+        int next = level;
+        while (next > 1 && children[next] >= fanOut) {
+            next--;
+        }
+        return next;
+    }
+
+    private List<String> getMetadataColumnNames() {
+        if (columns < 0) {
+            return columnNames;
+        }
+        List<String> names = new ArrayList<>(columns);
+        for (int i = 0; i < columns; i++) {
+            names.add(i < columnNames.size() ? columnNames.get(i) : "Column " + (i + 1));
+        }
+        return names;
+    }
+
+    private String createValue(String columnName, Random random) {
+        // names, roles and authority data keep their format
+        return ImportFixture.isTextColumn(columnName) ? createText(random) : ImportFixture.createValue(columnName, random, 1);
+    }
+
+    private String createText(Random random) {
+        StringBuilder text = new StringBuilder(textLength + 16);
+        while (text.length() < textLength) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(ImportFixture.createWord(random));
+        }
+        text.setLength(textLength);
+        return text.toString().trim();
+    }
+}
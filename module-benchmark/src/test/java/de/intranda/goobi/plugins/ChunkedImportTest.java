@@ -0,0 +1,106 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.goobi.production.enums.ImportReturnValue;
+import org.goobi.production.importer.ImportObject;
+import org.goobi.production.importer.Record;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ugh.dl.Prefs;
+
+/**
+ * Imports a file in chunks of two records and creates the processes like GoobiScript, with a new plugin instance for each record.
+ */
+public class ChunkedImportTest {
+
+    // identifier and title of the records, the fourth record uses the process title of the first one
+    private static final String[][] RECORDS = { { "CR_1", "Krone" }, { "CR_2", "Zepter" }, { "CR_3", "Reichsapfel" }, { "CR_1", "Krone" },
+            { "CR_5", "Perle" } };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeWorkbook() throws IOException {
+        File file = folder.newFile("import.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file.toPath())) {
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            CellStyle processStyle = workbook.createCellStyle();
+            processStyle.setFont(bold);
+
+            Sheet sheet = workbook.createSheet("Series A");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Level 1");
+            header.createCell(1).setCellValue("Level 2");
+            header.createCell(2).setCellValue("Title");
+            sheet.createRow(1).createCell(0).setCellValue("CR_A");
+            for (int i = 0; i < RECORDS.length; i++) {
+                Row row = sheet.createRow(i + 2);
+                Cell identifier = row.createCell(1);
+                identifier.setCellValue(RECORDS[i][0]);
+                identifier.setCellStyle(processStyle);
+                row.createCell(2).setCellValue(RECORDS[i][1]);
+            }
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    private static CrownImportPlugin createPlugin(CrownImportConfig config, Prefs prefs, File importFolder) {
+        CrownImportPlugin plugin = ImportFixture.createPlugin(config, prefs);
+        plugin.setImportFolder(importFolder.getAbsolutePath());
+        // no process exists yet
+        plugin.setTitleQuery(batch -> List.of());
+        return plugin;
+    }
+
+    @Test
+    public void testChunkedImport() throws Exception {
+        CrownImportConfig config =
+                ImportFixture.loadConfig(Map.of("/recordChunks/@enabled", true, "/recordChunks/@size", 2, "/checkProcessTitles", true));
+        Prefs prefs = ImportFixture.loadRuleset();
+        File importFolder = folder.newFolder("import");
+
+        CrownImportPlugin plugin = createPlugin(config, prefs, importFolder);
+        plugin.setArchivePlugin(EadStandIns.createArchive(config));
+        plugin.setFile(writeWorkbook());
+        List<Record> records = plugin.generateRecordsFromFile();
+        assertEquals(RECORDS.length, records.size());
+
+        // the METS files were written while the file was read, each record is passed to a new instance
+        List<ImportReturnValue> results = new ArrayList<>();
+        for (Record rec : records) {
+            assertTrue(rec instanceof PreparedRecord);
+            List<ImportObject> answer = createPlugin(config, prefs, importFolder).generateFiles(List.of(rec));
+            assertSame(((PreparedRecord) rec).getImportObject(), answer.get(0));
+            results.add(answer.get(0).getImportReturnValue());
+            if (answer.get(0).getImportReturnValue() == ImportReturnValue.ExportFinished) {
+                assertTrue(Files.exists(Paths.get(answer.get(0).getMetsFilename())));
+            }
+        }
+
+        // the title of the first chunk is rejected in the second one
+        assertEquals(List.of(ImportReturnValue.ExportFinished, ImportReturnValue.ExportFinished, ImportReturnValue.ExportFinished,
+                ImportReturnValue.InvalidData, ImportReturnValue.ExportFinished), results);
+    }
+}
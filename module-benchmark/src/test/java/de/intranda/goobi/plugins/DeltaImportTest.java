@@ -0,0 +1,144 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.goobi.production.enums.ImportReturnValue;
+import org.goobi.production.importer.ImportObject;
+import org.goobi.production.importer.Record;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ugh.dl.Prefs;
+
+/**
+ * Runs several delta imports of the same file. The processes are created by goobi after the import, the test adds their titles to the list of
+ * existing processes instead.
+ */
+public class DeltaImportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // titles of the existing processes
+    private final Set<String> existingTitles = new HashSet<>();
+    // processes of another import use the titles of the records with this title column
+    private String foreignTitle;
+
+    private Prefs prefs;
+    private File importFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        prefs = ImportFixture.loadRuleset();
+        importFolder = folder.newFolder("import");
+    }
+
+    /**
+     * write a root row and a bold row with a process for each record: identifier, title and note
+     */
+    private File writeWorkbook(String[]... records) throws IOException {
+        File file = new File(folder.getRoot(), "import.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file.toPath())) {
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            CellStyle processStyle = workbook.createCellStyle();
+            processStyle.setFont(bold);
+
+            Sheet sheet = workbook.createSheet("Series A");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Level 1");
+            header.createCell(1).setCellValue("Level 2");
+            header.createCell(2).setCellValue("Title");
+            header.createCell(3).setCellValue("Note");
+            sheet.createRow(1).createCell(0).setCellValue("CR_A");
+            for (int i = 0; i < records.length; i++) {
+                Row row = sheet.createRow(i + 2);
+                Cell identifier = row.createCell(1);
+                identifier.setCellValue(records[i][0]);
+                identifier.setCellStyle(processStyle);
+                row.createCell(2).setCellValue(records[i][1]);
+                row.createCell(3).setCellValue(records[i][2]);
+            }
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    /**
+     * run the import and create the processes of the successful records
+     */
+    private List<ImportObject> runImport(File workbook, List<String> importedIds) throws Exception {
+        CrownImportConfig config = ImportFixture.loadConfig(Map.of("/deltaImport", true, "/checkProcessTitles", true));
+        CrownImportPlugin plugin = ImportFixture.createPlugin(config, prefs);
+        plugin.setArchivePlugin(EadStandIns.createArchive(config));
+        plugin.setImportFolder(importFolder.getAbsolutePath());
+        plugin.setTitleQuery(batch -> {
+            List<String> answer = new ArrayList<>();
+            for (String title : batch) {
+                if (existingTitles.contains(title) || foreignTitle != null && title.endsWith(foreignTitle)) {
+                    answer.add(title);
+                }
+            }
+            return answer;
+        });
+        plugin.setFile(workbook);
+
+        List<Record> records = plugin.generateRecordsFromFile();
+        for (Record rec : records) {
+            importedIds.add(rec.getId());
+        }
+        List<ImportObject> answer = plugin.generateFiles(records);
+        for (ImportObject io : answer) {
+            if (io.getImportReturnValue() == ImportReturnValue.ExportFinished) {
+                existingTitles.add(io.getProcessTitle());
+            }
+        }
+        return answer;
+    }
+
+    @Test
+    public void testChangedRecordOfExistingProcess() throws Exception {
+        List<String> ids = new ArrayList<>();
+        File workbook = writeWorkbook(new String[] { "CR_1", "Krone", "first note" }, new String[] { "CR_2", "Zepter", "" });
+        List<ImportObject> answer = runImport(workbook, ids);
+        assertEquals(List.of("CR_1", "CR_2"), ids);
+        assertEquals(ImportReturnValue.ExportFinished, answer.get(0).getImportReturnValue());
+        assertEquals(ImportReturnValue.ExportFinished, answer.get(1).getImportReturnValue());
+
+        // a process of another import uses the title of the third record
+        foreignTitle = "Gold";
+        File changed = writeWorkbook(new String[] { "CR_1", "Krone", "changed note" }, new String[] { "CR_2", "Zepter", "" },
+                new String[] { "CR_3", "Gold", "" }, new String[] { "CR_4", "Perle", "" });
+        ids.clear();
+        answer = runImport(changed, ids);
+
+        // the changed record of an existing process is skipped, the new records are checked like in a regular import
+        assertEquals(List.of("CR_1", "CR_3", "CR_4"), ids);
+        assertEquals(ImportReturnValue.DataAllreadyExists, answer.get(0).getImportReturnValue());
+        assertEquals(ImportReturnValue.InvalidData, answer.get(1).getImportReturnValue());
+        assertEquals(ImportReturnValue.ExportFinished, answer.get(2).getImportReturnValue());
+
+        // the skipped change is only reported once, the rejected record is checked again
+        ids.clear();
+        runImport(changed, ids);
+        assertEquals(List.of("CR_3"), ids);
+    }
+}
@@ -0,0 +1,98 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.goobi.interfaces.IArchiveManagementAdministrationPlugin;
+import org.goobi.interfaces.IEadEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MultiSheetImportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * write a sheet with a root row and a single child row
+     */
+    private static void addSheet(XSSFWorkbook workbook, String name, String rootId, String childId) {
+        Sheet sheet = workbook.createSheet(name);
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("Level 1");
+        header.createCell(1).setCellValue("Level 2");
+        header.createCell(2).setCellValue("Label");
+        Row root = sheet.createRow(1);
+        root.createCell(0).setCellValue(rootId);
+        root.createCell(2).setCellValue("Label of " + rootId);
+        Row child = sheet.createRow(2);
+        child.createCell(1).setCellValue(childId);
+        child.createCell(2).setCellValue("Label of " + childId);
+    }
+
+    /**
+     * write a workbook with two sheets
+     */
+    private File writeWorkbook() throws IOException {
+        File file = folder.newFile("import.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file.toPath())) {
+            addSheet(workbook, "Series A", "CR_A", "CR_A_1");
+            addSheet(workbook, "Series B", "CR_B", "CR_B_1");
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    /**
+     * import the workbook into a new archive
+     */
+    private IArchiveManagementAdministrationPlugin importWorkbook(CrownImportConfig config) throws IOException {
+        CrownImportPlugin plugin = ImportFixture.createPlugin(config, null);
+        IArchiveManagementAdministrationPlugin archive = EadStandIns.createArchive(config);
+        plugin.setArchivePlugin(archive);
+        plugin.setFile(writeWorkbook());
+        plugin.generateRecordsFromFile();
+        return archive;
+    }
+
+    @Test
+    public void testEachSheetBelowTheRoot() throws Exception {
+        IArchiveManagementAdministrationPlugin archive = importWorkbook(ImportFixture.loadConfig(Map.of("/sheets/@all", true)));
+
+        // the first sheet describes the root node
+        IEadEntry root = archive.getRootElement();
+        assertEquals("CR_A", root.getId());
+        List<IEadEntry> children = root.getSubEntryList();
+        assertEquals(2, children.size());
+        assertEquals("CR_A_1", children.get(0).getId());
+
+        // the root row of the second sheet is a new node below the root, the rows of the sheet are its children
+        IEadEntry sheetNode = children.get(1);
+        assertEquals("CR_B", sheetNode.getId());
+        assertSame(root, sheetNode.getParentNode());
+        assertEquals(1, sheetNode.getSubEntryList().size());
+        assertEquals("CR_B_1", sheetNode.getSubEntryList().get(0).getId());
+    }
+
+    @Test
+    public void testFirstSheetOnly() throws Exception {
+        // without the option, only the first sheet is imported
+        IArchiveManagementAdministrationPlugin archive = importWorkbook(ImportFixture.loadConfig(Map.of()));
+
+        IEadEntry root = archive.getRootElement();
+        assertEquals("CR_A", root.getId());
+        assertEquals(1, root.getSubEntryList().size());
+        assertEquals("CR_A_1", root.getSubEntryList().get(0).getId());
+    }
+}
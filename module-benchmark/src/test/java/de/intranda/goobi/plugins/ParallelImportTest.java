@@ -0,0 +1,112 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.goobi.production.enums.ImportReturnValue;
+import org.goobi.production.importer.ImportObject;
+import org.goobi.production.importer.Record;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ugh.dl.Prefs;
+
+/**
+ * Creates the METS files of the same file with one and with several threads, the results must not depend on the number of threads.
+ */
+public class ParallelImportTest {
+
+    private static final int NUMBER_OF_RECORDS = 20;
+
+    // the record with this index uses the process title of the first record
+    private static final int DUPLICATE_RECORD = 7;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeWorkbook() throws IOException {
+        File file = folder.newFile("import.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file.toPath())) {
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            CellStyle processStyle = workbook.createCellStyle();
+            processStyle.setFont(bold);
+
+            Sheet sheet = workbook.createSheet("Series A");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Level 1");
+            header.createCell(1).setCellValue("Level 2");
+            header.createCell(2).setCellValue("Title");
+            sheet.createRow(1).createCell(0).setCellValue("CR_A");
+            for (int i = 0; i < NUMBER_OF_RECORDS; i++) {
+                int number = i == DUPLICATE_RECORD ? 0 : i;
+                Row row = sheet.createRow(i + 2);
+                Cell identifier = row.createCell(1);
+                identifier.setCellValue("CR_" + number);
+                identifier.setCellStyle(processStyle);
+                row.createCell(2).setCellValue("Title " + number);
+            }
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    /**
+     * import the file and return the import objects
+     */
+    private List<ImportObject> runImport(File workbook, Prefs prefs, int processThreads) throws Exception {
+        CrownImportConfig config = ImportFixture.loadConfig(Map.of("/processThreads", processThreads, "/checkProcessTitles", true));
+        CrownImportPlugin plugin = ImportFixture.createPlugin(config, prefs);
+        plugin.setArchivePlugin(EadStandIns.createArchive(config));
+        plugin.setImportFolder(folder.newFolder("import_" + processThreads).getAbsolutePath());
+        // no process exists yet
+        plugin.setTitleQuery(batch -> List.of());
+        plugin.setFile(workbook);
+        List<Record> records = plugin.generateRecordsFromFile();
+        assertEquals(NUMBER_OF_RECORDS, records.size());
+        return plugin.generateFiles(records);
+    }
+
+    @Test
+    public void testSameResultWithThreads() throws Exception {
+        File workbook = writeWorkbook();
+        Prefs prefs = ImportFixture.loadRuleset();
+        List<ImportObject> sequential = runImport(workbook, prefs, 1);
+        List<ImportObject> parallel = runImport(workbook, prefs, 4);
+
+        assertEquals(NUMBER_OF_RECORDS, parallel.size());
+        List<String> expectedTitles = new ArrayList<>();
+        List<String> parallelTitles = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_RECORDS; i++) {
+            ImportObject expected = sequential.get(i);
+            ImportObject actual = parallel.get(i);
+            // the objects are returned in the order of the records, the duplicate title is rejected at its position
+            ImportReturnValue expectedValue = i == DUPLICATE_RECORD ? ImportReturnValue.InvalidData : ImportReturnValue.ExportFinished;
+            assertEquals(expectedValue, expected.getImportReturnValue());
+            assertEquals(expectedValue, actual.getImportReturnValue());
+            if (expectedValue == ImportReturnValue.ExportFinished) {
+                expectedTitles.add(expected.getProcessTitle());
+                parallelTitles.add(actual.getProcessTitle());
+                assertTrue(Files.exists(Paths.get(actual.getMetsFilename())));
+                assertEquals(Paths.get(expected.getMetsFilename()).getFileName(), Paths.get(actual.getMetsFilename()).getFileName());
+            }
+        }
+        assertEquals(expectedTitles, parallelTitles);
+    }
+}
@@ -0,0 +1,118 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.goobi.interfaces.IArchiveManagementAdministrationPlugin;
+import org.goobi.interfaces.IEadEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Stops an import while the nodes are created and continues it from the checkpoint.
+ */
+public class ResumeImportTest {
+
+    // identifiers of the rows, the column defines the hierarchy
+    private static final String[][] ROWS = { { "CR_A" }, { null, "CR_A_1" }, { null, null, "CR_A_1_1" }, { null, null, "CR_A_1_2" },
+            { null, "CR_A_2" }, { null, null, "CR_A_2_1" } };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeWorkbook() throws IOException {
+        File file = folder.newFile("import.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file.toPath())) {
+            Sheet sheet = workbook.createSheet("Series A");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Level 1");
+            header.createCell(1).setCellValue("Level 2");
+            header.createCell(2).setCellValue("Level 3");
+            for (int i = 0; i < ROWS.length; i++) {
+                Row row = sheet.createRow(i + 1);
+                for (int column = 0; column < ROWS[i].length; column++) {
+                    if (ROWS[i][column] != null) {
+                        row.createCell(column).setCellValue(ROWS[i][column]);
+                    }
+                }
+            }
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    /**
+     * wrap the archive, the given call of addNode fails like a stopped import
+     */
+    private static IArchiveManagementAdministrationPlugin stopAtNode(IArchiveManagementAdministrationPlugin archive, int failingCall) {
+        AtomicInteger calls = new AtomicInteger();
+        return (IArchiveManagementAdministrationPlugin) Proxy.newProxyInstance(ResumeImportTest.class.getClassLoader(),
+                new Class<?>[] { IArchiveManagementAdministrationPlugin.class }, (proxy, method, args) -> {
+                    if ("addNode".equals(method.getName()) && calls.incrementAndGet() == failingCall) {
+                        throw new IllegalStateException("import stopped");
+                    }
+                    try {
+                        return method.invoke(archive, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void runImport(IArchiveManagementAdministrationPlugin archive, File workbook, boolean resume) throws Exception {
+        CrownImportConfig config = ImportFixture.loadConfig(Map.of("/checkpoint/@interval", 2, "/checkpoint/@resume", resume));
+        CrownImportPlugin plugin = ImportFixture.createPlugin(config, null);
+        plugin.setImportFolder(folder.getRoot().getAbsolutePath());
+        plugin.setArchivePlugin(archive);
+        plugin.setFile(workbook);
+        plugin.generateRecordsFromFile();
+    }
+
+    /**
+     * list the ids of all nodes below the root, each with the id of its parent
+     */
+    private static List<String> describeTree(IEadEntry root) {
+        List<String> nodes = new ArrayList<>();
+        for (IEadEntry entry : root.getAllNodes()) {
+            if (entry != root) {
+                nodes.add(entry.getParentNode().getId() + "/" + entry.getId());
+            }
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testResumeStoppedImport() throws Exception {
+        File workbook = writeWorkbook();
+        IArchiveManagementAdministrationPlugin expected = EadStandIns.createArchive(ImportFixture.loadConfig(Map.of()));
+        runImport(expected, workbook, false);
+
+        // the import stops before the node of the fourth row is created
+        IArchiveManagementAdministrationPlugin archive = EadStandIns.createArchive(ImportFixture.loadConfig(Map.of()));
+        runImport(stopAtNode(archive, 3), workbook, false);
+        assertEquals(List.of("CR_A/CR_A_1", "CR_A_1/CR_A_1_1"), describeTree(archive.getRootElement()));
+
+        // the next import continues after the last created node, no node is created twice
+        runImport(archive, workbook, true);
+        assertEquals(describeTree(expected.getRootElement()), describeTree(archive.getRootElement()));
+        assertEquals("CR_A", archive.getRootElement().getId());
+
+        // all rows were read, a further run with the checkpoint doesn't create any node
+        runImport(archive, workbook, true);
+        assertEquals(describeTree(expected.getRootElement()), describeTree(archive.getRootElement()));
+    }
+}